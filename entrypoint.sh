@@ -58,8 +58,69 @@ LOG_PROPS="-Djava.util.logging.config.file=/srv/springboard/conf/logging.propert
 
 final_vertx_conf_path="${VERTX_CONF_PATH:-/opt/conf/entcore.json}"
 
-if [ "$MODE" = "cluster" ]; then
-    exec java $JAVA_TOOL_OPTIONS $REMOTE_DEBUG $LOG_PROPS -XX:+UnlockExperimentalVMOptions -XX:+UseCGroupMemoryLimitForHeap -Dvertx.zookeeper.config=/srv/springboard/conf/zookeeper.json -jar /opt/vertx-service-launcher.jar -Dvertx.services.path=/srv/springboard/mods -Dvertx.disableFileCaching=true -conf $final_vertx_conf_path -cluster $VERTX_EXTRA_PARAMS
-else
-    exec java $JAVA_TOOL_OPTIONS $REMOTE_DEBUG $LOG_PROPS -XX:+UnlockExperimentalVMOptions -XX:+UseCGroupMemoryLimitForHeap -jar /opt/vertx-service-launcher.jar -Dvertx.services.path=/srv/springboard/mods -Dvertx.disableFileCaching=true -conf $final_vertx_conf_path $VERTX_EXTRA_PARAMS
+# Arguments of the launcher JVM, $1 : class data sharing options
+launcher_args() {
+    if [ "$MODE" = "cluster" ]; then
+        echo "$JAVA_TOOL_OPTIONS $REMOTE_DEBUG $LOG_PROPS $1 -XX:+UnlockExperimentalVMOptions -XX:+UseCGroupMemoryLimitForHeap -Dvertx.zookeeper.config=/srv/springboard/conf/zookeeper.json -jar /opt/vertx-service-launcher.jar -Dvertx.services.path=/srv/springboard/mods -Dvertx.disableFileCaching=true -conf $final_vertx_conf_path -cluster $VERTX_EXTRA_PARAMS"
+    else
+        echo "$JAVA_TOOL_OPTIONS $REMOTE_DEBUG $LOG_PROPS $1 -XX:+UnlockExperimentalVMOptions -XX:+UseCGroupMemoryLimitForHeap -jar /opt/vertx-service-launcher.jar -Dvertx.services.path=/srv/springboard/mods -Dvertx.disableFileCaching=true -conf $final_vertx_conf_path $VERTX_EXTRA_PARAMS"
+    fi
+}
+
+# Class data sharing (dynamic AppCDS archives, Java 13+), archives are keyed by the deployed module set :
+# - CDS_MODE=auto : uses the archive of the last deployed module set, or dumps one when the JVM exits
+# - CDS_MODE=train : runs the launcher until the modules are deployed to dump the archive, then starts with it
+CDS_MODE="${CDS_MODE:-off}"
+CDS_DIR=/srv/springboard/mods/.cds
+CDS_OPTS=""
+if [ "$CDS_MODE" != "off" ]; then
+    JAVA_MAJOR=$(java -version 2>&1 | awk -F '"' '/version/ {split($2, v, "."); print (v[1] == "1") ? v[2] : v[1]}')
+    if [ "${JAVA_MAJOR:-8}" -lt 13 ]; then
+        echo "WARN: CDS_MODE=$CDS_MODE requires Java 13 or later (found $JAVA_MAJOR), class data sharing is disabled"
+        CDS_MODE="off"
+    fi
+fi
+# A training run of a cluster node would register its modules and take traffic before exiting
+if [ "$CDS_MODE" = "train" ] && [ "$MODE" = "cluster" ]; then
+    echo "WARN: CDS_MODE=train is not supported with MODE=cluster, the archive is dumped at exit (CDS_MODE=auto)"
+    CDS_MODE="auto"
 fi
+
+# Keeps the archive dumped by the last training run under the key of its module set
+cds_promote() {
+    if [ -f "$CDS_DIR/training.jsa" ] && [ -f "$CDS_DIR/training.key" ]; then
+        mv "$CDS_DIR/training.jsa" "$CDS_DIR/$(cat "$CDS_DIR/training.key").jsa"
+    fi
+    rm -f "$CDS_DIR/training.jsa" "$CDS_DIR/training.key"
+}
+
+# Sets CDS_OPTS : the archive of the last module set if any (the JVM ignores the classes which changed since),
+# a training run otherwise ($1 : exit to stop once the modules are deployed, shutdown to dump at normal exit)
+cds_options() {
+    local key=""
+    if [ -f "$CDS_DIR/last.key" ]; then
+        key=$(cat "$CDS_DIR/last.key")
+    fi
+    if [ -n "$key" ] && [ -f "$CDS_DIR/$key.jsa" ]; then
+        find "$CDS_DIR" -name '*.jsa' ! -name "$key.jsa" -delete
+        CDS_OPTS="-XX:SharedArchiveFile=$CDS_DIR/$key.jsa -Dlauncher.cds.dir=$CDS_DIR -Dlauncher.cds.key=$key"
+    else
+        CDS_OPTS="-XX:ArchiveClassesAtExit=$CDS_DIR/training.jsa -Dlauncher.cds.dir=$CDS_DIR -Dlauncher.cds.training=$1"
+    fi
+}
+
+if [ "$CDS_MODE" != "off" ]; then
+    mkdir -p "$CDS_DIR"
+    cds_promote
+    if [ "$CDS_MODE" = "train" ]; then
+        cds_options exit
+        if [[ "$CDS_OPTS" == *ArchiveClassesAtExit* ]]; then
+            echo "Training class data sharing archive"
+            java $(launcher_args "$CDS_OPTS") || echo "WARN: class data sharing training run failed"
+            cds_promote
+        fi
+    fi
+    cds_options shutdown
+fi
+
+exec java $(launcher_args "$CDS_OPTS")
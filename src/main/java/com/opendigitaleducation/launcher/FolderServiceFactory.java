@@ -1,5 +1,14 @@
 package com.opendigitaleducation.launcher;
 
+import com.opendigitaleducation.launcher.classloader.ClassLoaderTracker;
+import com.opendigitaleducation.launcher.classloader.ClassWarmup;
+import com.opendigitaleducation.launcher.classloader.ModuleClassLoader;
+import com.opendigitaleducation.launcher.classloader.SharedLibraryRegistry;
+import com.opendigitaleducation.launcher.config.ServiceCatalog;
+import com.opendigitaleducation.launcher.deployer.DeploymentJournal;
+import com.opendigitaleducation.launcher.deployer.DeploymentTimeline;
+import com.opendigitaleducation.launcher.deployer.DeploymentTimeline.Phase;
+import com.opendigitaleducation.launcher.deployer.ModuleDescriptor;
 import com.opendigitaleducation.launcher.resolvers.ServiceResolverFactory;
 import com.opendigitaleducation.launcher.utils.FileUtils;
 import com.opendigitaleducation.launcher.utils.ServiceUtils;
@@ -7,17 +16,18 @@ import com.opendigitaleducation.launcher.utils.ZipUtils;
 import io.vertx.core.*;
 import io.vertx.core.impl.logging.Logger;
 import io.vertx.core.impl.logging.LoggerFactory;
-import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.service.ServiceVerticleFactory;
 
 import java.io.File;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
-import java.util.Collections;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class FolderServiceFactory extends ServiceVerticleFactory {
 
@@ -25,6 +35,8 @@ public class FolderServiceFactory extends ServiceVerticleFactory {
     protected static final String SERVICES_PATH = "vertx.services.path";
     public static final String FACTORY_PREFIX = "folderService";
 
+    private static final Map<String, Integer> generations = new ConcurrentHashMap<>();
+
     private Vertx vertx;
     private String servicesPath;
     private ServiceResolverFactory serviceResolver;
@@ -40,24 +52,22 @@ public class FolderServiceFactory extends ServiceVerticleFactory {
     @Override
     public void createVerticle(String verticleName, ClassLoader classLoader, Promise<Callable<Verticle>> promise) {
         final DeploymentOptions deploymentOptions = new DeploymentOptions();
-        final JsonArray services = vertx.getOrCreateContext().config().getJsonArray("services");
-        services.stream()
-            .filter(s -> verticleName.endsWith(((JsonObject)s).getString("name")))
-            .map(s -> (JsonObject)s)
-            .forEach(s -> {
-                if(s.containsKey("worker")) {
-                    deploymentOptions.setWorker(s.getBoolean("worker", false));
-                }
-                if(s.containsKey("threadingModel")) {
-                    deploymentOptions.setThreadingModel(ThreadingModel.valueOf(s.getString("threadingModel", ThreadingModel.EVENT_LOOP.name())));
-                }
-                if(s.containsKey("workerPoolSize")) {
-                    deploymentOptions.setWorkerPoolSize(s.getInteger("workerPoolSize"));
-                }
-                if(s.containsKey("workerPoolName")) {
-                    deploymentOptions.setWorkerPoolName(s.getString("workerPoolName"));
-                }
-            });
+        final JsonObject s = verticleName != null && verticleName.startsWith(prefix() + ":") ?
+            ServiceCatalog.getInstance().get(verticleName.substring(prefix().length() + 1)) : null;
+        if (s != null) {
+            if(s.containsKey("worker")) {
+                deploymentOptions.setWorker(s.getBoolean("worker", false));
+            }
+            if(s.containsKey("threadingModel")) {
+                deploymentOptions.setThreadingModel(ThreadingModel.valueOf(s.getString("threadingModel", ThreadingModel.EVENT_LOOP.name())));
+            }
+            if(s.containsKey("workerPoolSize")) {
+                deploymentOptions.setWorkerPoolSize(s.getInteger("workerPoolSize"));
+            }
+            if(s.containsKey("workerPoolName")) {
+                deploymentOptions.setWorkerPoolName(s.getString("workerPoolName"));
+            }
+        }
 
         createVerticle(verticleName, deploymentOptions, classLoader, promise);
     }
@@ -72,64 +82,237 @@ public class FolderServiceFactory extends ServiceVerticleFactory {
         ServiceUtils.getServicePathFromIdentifier(identifier, servicesPath, vertx).onSuccess(sp -> {
             String servicePath = sp + File.separator;
             vertx.fileSystem().exists(servicePath, ar -> {
-                if (ar.succeeded() && ar.result()) {
+                final String state = DeploymentJournal.getInstance().getState(identifier);
+                final boolean exists = ar.succeeded() && ar.result();
+                if (exists && (state == null || DeploymentJournal.EXTRACTED.equals(state))) {
                     deploy(identifier, deploymentOptions, classLoader, resolution, servicePath);
+                } else if (exists && DeploymentJournal.STALE.equals(state)) {
+                    // cleaned module : the extracted directory is kept until the artefact is known to have changed
+                    resolveAndExtract(identifier, deploymentOptions, classLoader, resolution, servicePath, true);
+                } else if (exists) {
+                    logger.warn("Incomplete extraction of " + identifier + " (" + state + "), extracting it again");
+                    vertx.fileSystem().deleteRecursive(servicePath, true).onComplete(del ->
+                        resolveAndExtract(identifier, deploymentOptions, classLoader, resolution, servicePath, false));
                 } else {
-                    serviceResolver.resolve(identifier, jar -> {
-                        if (jar.succeeded()) {
-                            ZipUtils.unzip(vertx, jar.result(), servicePath, res -> {
-                                if (res.succeeded()) {
-                                    deploy(identifier, deploymentOptions, classLoader, resolution, servicePath);
-                                } else {
-                                    resolution.fail(res.cause());
-                                }
-                            });
-                        } else {
-                            logger.error("An error occurred while loading the jar of " + identifier, jar.cause());
-                            resolution.fail("Service not found (JAR): " + identifier);
-                        }
-                    });
+                    resolveAndExtract(identifier, deploymentOptions, classLoader, resolution, servicePath, false);
                 }
             });
         }).onFailure(th -> resolution.fail(th.getMessage()));
     }
-    private void deploy(String identifier, DeploymentOptions deploymentOptions, ClassLoader classLoader, Promise<Callable<Verticle>> resolution, String servicePath) {
-        vertx.fileSystem().readFile(servicePath + "META-INF" + File.separator + "MANIFEST.MF", ar -> {
-			if (ar.succeeded()) {
-                Scanner s = new Scanner(ar.result().toString());
-                String id = null;
-                while (s.hasNextLine()) {
-                    final String line = s.nextLine();
-                    if (line.contains("Main-Verticle:")) {
-                        String [] item = line.split(":");
-                        if (item.length == 3) {
-                            id = item[2];
-
-                            deploymentOptions.setExtraClasspath(Collections.singletonList(servicePath));
-                            deploymentOptions.setIsolationGroup("__vertx_folder_" + identifier.split("~")[1]);
-                            try {
-                                URLClassLoader urlClassLoader = new URLClassLoader(
-                                    new URL[]{new URL("file://" + servicePath )}, classLoader);
-                                FolderServiceFactory.super.createVerticle(id, deploymentOptions, urlClassLoader, resolution);
-                                // resolution.future().onSuccess(cv -> cv.call().getVertx().getOrCreateContext().config());
-                            } catch (MalformedURLException e) {
-                                logger.error("Error while trying to deploy " + identifier, e);
-                                resolution.fail(e);
-                            }
+    private void resolveAndExtract(String identifier, DeploymentOptions deploymentOptions, ClassLoader classLoader,
+            Promise<Callable<Verticle>> resolution, String servicePath, boolean stale) {
+        final DeploymentJournal journal = DeploymentJournal.getInstance();
+        DeploymentTimeline.mark(identifier, Phase.Download);
+        serviceResolver.resolve(identifier, jar -> {
+            if (jar.failed()) {
+                logger.error("An error occurred while loading the jar of " + identifier, jar.cause());
+                resolution.fail("Service not found (JAR): " + identifier);
+                return;
+            }
+            final Future<Boolean> unchanged = stale ?
+                journal.isUnchanged(identifier, jar.result()).otherwise(false) : Future.succeededFuture(false);
+            unchanged.onComplete(u -> {
+                if (u.result()) {
+                    logger.info("Artefact of " + identifier + " is unchanged, reusing extracted directory");
+                    journal.extracted(identifier, jar.result()).onComplete(j -> ModuleDescriptor.refresh(vertx, servicePath)
+                        .onComplete(m -> deploy(identifier, deploymentOptions, classLoader, resolution, servicePath)));
+                    return;
+                }
+                final Future<Void> deleteStale = stale ?
+                    vertx.fileSystem().deleteRecursive(servicePath, true) : Future.succeededFuture();
+                deleteStale.onComplete(d -> {
+                    DeploymentTimeline.mark(identifier, Phase.Extract);
+                    final Handler<AsyncResult<Void>> extracted = res -> {
+                        if (res.succeeded()) {
+                            journal.extracted(identifier, jar.result()).onComplete(j -> ModuleDescriptor.refresh(vertx, servicePath)
+                                .onComplete(m -> deploy(identifier, deploymentOptions, classLoader, resolution, servicePath)));
                         } else {
-                            resolution.fail("Invalid service identifier : " + line);
+                            resolution.fail(res.cause());
                         }
-                        break;
-                    }
-                }
-                s.close();
-                if (id == null && !resolution.future().isComplete()) {
+                    };
+                    journal.extracting(identifier).onComplete(e -> {
+                        if (isInPlaceDeploy() && jar.result().endsWith(".jar")) {
+                            // classes are read from the jar, only the resources are extracted
+                            ZipUtils.unzipResources(vertx, jar.result(), servicePath, extracted);
+                        } else {
+                            ZipUtils.unzip(vertx, jar.result(), servicePath, extracted);
+                        }
+                    });
+                });
+            });
+        });
+    }
+
+    private void deploy(String identifier, DeploymentOptions deploymentOptions, ClassLoader classLoader, Promise<Callable<Verticle>> resolution, String servicePath) {
+        DeploymentTimeline.mark(identifier, Phase.Classload);
+        resolution.future().onSuccess(v -> DeploymentTimeline.mark(identifier, Phase.Start));
+        ModuleDescriptor.get(vertx, servicePath).onComplete(ar -> {
+            if (ar.succeeded()) {
+                final String main = ar.result().getMainVerticle();
+                if (main == null) {
                     resolution.fail("Service not found (MANIFEST): " + identifier);
+                    return;
+                }
+                final String[] item = main.split(":");
+                if (item.length != 2) {
+                    resolution.fail("Invalid service identifier : Main-Verticle: " + main);
+                    return;
                 }
+                ZipUtils.classPath(vertx, servicePath).onComplete(cp -> missing(cp.result()).onComplete(missing -> {
+                    if (missing.succeeded() && missing.result() != null) {
+                        logger.warn("Class path of " + identifier + " is missing " + missing.result() + ", extracting it again");
+                        ModuleDescriptor.invalidate(servicePath);
+                        vertx.fileSystem().deleteRecursive(servicePath, true).onComplete(del ->
+                            resolveAndExtract(identifier, deploymentOptions, classLoader, resolution, servicePath, false));
+                        return;
+                    }
+                    final ClassLoaderTracker tracker = ClassLoaderTracker.getInstance();
+                    final String group = classLoaderGroup(identifier);
+                    final ModuleClassLoader current = tracker.acquire(group);
+                    final Future<ModuleClassLoader> moduleClassLoader = current != null ? Future.succeededFuture(current) :
+                        SharedLibraryRegistry.getInstance().classLoader(identifier, servicePath, cp.result(), classLoader)
+                            .onSuccess(urlClassLoader -> {
+                                tracker.register(group, identifier, urlClassLoader);
+                                ClassWarmup.getInstance().attach(urlClassLoader);
+                            });
+                    moduleClassLoader
+                        .onSuccess(urlClassLoader -> {
+                            resolution.future().onFailure(e -> tracker.release(urlClassLoader));
+                            createServiceVerticle(item[1], deploymentOptions, urlClassLoader, resolution);
+                        })
+                        .onFailure(e -> {
+                            logger.error("Error while trying to deploy " + identifier, e);
+                            resolution.fail(e);
+                        });
+                }));
             } else {
                 resolution.fail(ar.cause());
             }
-		});
+        });
+    }
+
+    /**
+     * Reads the service descriptor ({@code <name>.json}) like {@link ServiceVerticleFactory} but deploys its main
+     * verticle with the module class loader : the classes of the module are defined by this class loader (and its
+     * shared library layers) instead of an isolation group class loader created by Vert.x.
+     */
+    private void createServiceVerticle(String name, DeploymentOptions deploymentOptions, ModuleClassLoader classLoader,
+            Promise<Callable<Verticle>> resolution) {
+        final String descriptorFile = name + ".json";
+        final JsonObject descriptor;
+        try (InputStream is = classLoader.getResourceAsStream(descriptorFile)) {
+            if (is == null) {
+                resolution.fail("Cannot find service descriptor file " + descriptorFile + " on classpath");
+                return;
+            }
+            try (Scanner scanner = new Scanner(is, "UTF-8").useDelimiter("\\A")) {
+                descriptor = new JsonObject(scanner.next());
+            }
+        } catch (Exception e) {
+            resolution.fail(new IllegalArgumentException("Invalid service descriptor file " + descriptorFile, e));
+            return;
+        }
+        final String main = descriptor.getString("main");
+        if (main == null) {
+            resolution.fail(descriptorFile + " does not contain a main field");
+            return;
+        }
+        final JsonObject options = deploymentOptions.toJson().mergeIn(descriptor.getJsonObject("options", new JsonObject()));
+        final AtomicBoolean released = new AtomicBoolean();
+        resolution.complete(() -> new ServiceVerticle(main, options, classLoader, released));
+    }
+
+    /**
+     * Deploys the main verticle of a service with the module class loader. The deployment uses the class loader
+     * while it runs : it is released once, by the first instance which fails to start or is stopped.
+     */
+    private static class ServiceVerticle extends AbstractVerticle {
+        private final String main;
+        private final JsonObject options;
+        private final ModuleClassLoader classLoader;
+        private final AtomicBoolean released;
+
+        ServiceVerticle(String main, JsonObject options, ModuleClassLoader classLoader, AtomicBoolean released) {
+            this.main = main;
+            this.options = options;
+            this.classLoader = classLoader;
+            this.released = released;
+        }
+
+        @Override
+        public void start(Promise<Void> startPromise) {
+            final DeploymentOptions deploymentOptions = new DeploymentOptions(options).setClassLoader(classLoader);
+            if (deploymentOptions.getConfig() == null) {
+                deploymentOptions.setConfig(new JsonObject());
+            }
+            deploymentOptions.getConfig().mergeIn(context.config());
+            vertx.deployVerticle(main, deploymentOptions).onComplete(ar -> {
+                if (ar.succeeded()) {
+                    synchronized (released) {
+                        if (!released.get()) {
+                            ClassLoaderTracker.getInstance().deployed(deploymentID(), classLoader);
+                        }
+                    }
+                    startPromise.complete();
+                } else {
+                    release();
+                    startPromise.fail(ar.cause());
+                }
+            });
+        }
+
+        @Override
+        public void stop() {
+            release();
+        }
+
+        private void release() {
+            synchronized (released) {
+                if (released.compareAndSet(false, true) && !ClassLoaderTracker.getInstance().undeployed(deploymentID())) {
+                    ClassLoaderTracker.getInstance().release(classLoader);
+                }
+            }
+        }
+    }
+
+    private boolean isInPlaceDeploy() {
+        final JsonObject config = vertx.getOrCreateContext().config();
+        return config != null && config.getBoolean("inPlaceDeploy", false);
+    }
+
+    /**
+     * @return the first entry of the class path which does not exist (e.g. the jar of a module deployed in place
+     * was deleted), null if they all exist
+     */
+    private Future<String> missing(List<String> classPath) {
+        final List<Future<Boolean>> exists = new ArrayList<>();
+        for (final String entry : classPath) {
+            exists.add(vertx.fileSystem().exists(entry));
+        }
+        return Future.all(exists).map(res -> {
+            for (int i = 0; i < classPath.size(); i++) {
+                if (!res.<Boolean>resultAt(i)) {
+                    return classPath.get(i);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Next deployments of the service will use a new class loader so that they can run next to the
+     * current one (blue/green restart).
+     */
+    public static void nextGeneration(String identifier) {
+        generations.merge(identifier, 1, Integer::sum);
+    }
+
+    /**
+     * @return the class loader group of the service : the deployments of the same generation (e.g. the instances
+     * added by the autoscaler) share their class loader
+     */
+    private static String classLoaderGroup(String identifier) {
+        return identifier + "#" + generations.getOrDefault(identifier, 0);
     }
 
     @Override
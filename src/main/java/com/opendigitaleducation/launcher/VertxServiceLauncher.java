@@ -1,20 +1,35 @@
 package com.opendigitaleducation.launcher;
 
+import com.opendigitaleducation.launcher.classloader.ClassLoaderTracker;
+import com.opendigitaleducation.launcher.classloader.SharedLibraryRegistry;
 import com.opendigitaleducation.launcher.config.ConfigChangeEvent;
 import com.opendigitaleducation.launcher.config.ConfigProvider;
+import com.opendigitaleducation.launcher.config.ConfigProviderDiff;
 import com.opendigitaleducation.launcher.config.ConfigProviderListenerAssets;
+import com.opendigitaleducation.launcher.deployer.ClassDataSharing;
+import com.opendigitaleducation.launcher.deployer.DeploymentPlan;
+import com.opendigitaleducation.launcher.deployer.DeploymentScheduler;
+import com.opendigitaleducation.launcher.deployer.DeploymentTimeline;
 import com.opendigitaleducation.launcher.deployer.ModuleDeployer;
+import com.opendigitaleducation.launcher.deployer.NodeReadiness;
 import com.opendigitaleducation.launcher.interceptor.TraceIdInboundInterceptor;
 import com.opendigitaleducation.launcher.interceptor.TraceIdOutboundInterceptor;
 import com.opendigitaleducation.launcher.listeners.ArtefactListener;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public class VertxServiceLauncher extends AbstractVerticle {
@@ -23,45 +38,29 @@ public class VertxServiceLauncher extends AbstractVerticle {
     private static final Logger log = LoggerFactory.getLogger(VertxServiceLauncher.class);
     private static final int ERROR_RESTARTING_MODULE_CODE = 2;
     private static final int ERROR_UNKNOWN_ACTION_CODE = 1;
-    private static int countDeployments = 0;
+    private static final int ERROR_NO_MODULE_CODE = 3;
+    public static final String PROGRESS_ADDRESS = "service-launcher.deployment.progress";
     private ConfigProvider configProvider;
     private Optional<ArtefactListener> artefactListener = Optional.empty();
     private ModuleDeployer deployer;
+    private DeploymentScheduler scheduler;
 
-    private void onChangeEvent(final ConfigChangeEvent resConfig, final boolean clean){
-        if (resConfig.hasPendingTasks()) {
-            countDeployments++;
-            final int count = countDeployments;
-            log.info(String.format("Starting deployment %s: (deployed=%s, undeployed=%s, restart=%s)", countDeployments, resConfig.getServicesToDeploy().size(), resConfig.getServicesToUndeploy().size(), resConfig.getServicesToRestart().size()));
-            deployer.undeployAll(resConfig.getServicesToUndeploy()).compose(res -> {
-                if (clean) {
-                    return deployer.cleanAll(resConfig.getServicesToUndeploy());
-                } else {
-                    return Future.succeededFuture();
-                }
-            }).compose(undeploy -> {
-                // deploy must be after undeploy (some service are undeploy then deploy if
-                // version changed)
-                return deployer.deployAll(resConfig.getServicesToDeploy());
-            }).compose(deploy -> {
-                return deployer.restartAll(resConfig.getServicesToRestart());
-            }).onComplete(res -> {
-                log.info(String.format("End deployment %s: (deployed=%s, undeployed=%s, restart=%s)", count, resConfig.getServicesToDeploy().size(), resConfig.getServicesToUndeploy().size(), resConfig.getServicesToRestart().size()));
-                if (res.succeeded()) {
-                    resConfig.end(true);
-                } else {
-                    resConfig.end(false);
-                    log.error("Config has not been applied because of : " + res.cause().getMessage());
-                }
-            });
-        } else {
-            resConfig.empty();
-        }
+    public VertxServiceLauncher() {
+    }
+
+    /**
+     * Launcher using the given config provider and deployer, without starting them (deployment actions only).
+     */
+    VertxServiceLauncher(ConfigProvider configProvider, ModuleDeployer deployer, DeploymentScheduler scheduler) {
+        this.configProvider = configProvider;
+        this.deployer = deployer;
+        this.scheduler = scheduler;
     }
 
     @Override
     public void start() throws Exception {
         deployer = ModuleDeployer.create(vertx, config());
+        scheduler = new DeploymentScheduler(vertx, deployer, config());
         deployer.init()
             .onSuccess(r -> init())
             .onFailure(ex -> log.error("Error initializing deployer", ex));
@@ -77,8 +76,10 @@ public class VertxServiceLauncher extends AbstractVerticle {
         if(config().getBoolean("consulCdnEnabled", false)) {
             throw new RuntimeException("consul.not.implemented");
         }
+        final ClassDataSharing classDataSharing = new ClassDataSharing(vertx, config());
         configProvider.onConfigChange(resConfig -> {
-            onChangeEvent(resConfig, clean || resConfig.isForceClean());
+            resConfig.onEnd(success -> classDataSharing.deployed());
+            scheduler.submit(resConfig, clean || resConfig.isForceClean());
         });
         artefactListener = ArtefactListener.create(configProvider, config());
         if(artefactListener.isPresent()){
@@ -93,27 +94,177 @@ public class VertxServiceLauncher extends AbstractVerticle {
             vertx.eventBus().addOutboundInterceptor(new TraceIdOutboundInterceptor<>());
         }
         vertx.eventBus().localConsumer(SERVICE_LAUNCHER, deploymentActions());
+        startReadinessEndpoint();
     }
 
-    private Handler<Message<JsonObject>> deploymentActions() {
+    /**
+     * Applies a new configuration ("config" or the file at the "configPath" of the launcher) with the diff
+     * config provider : only the changed services are deployed, undeployed or restarted.
+     */
+    private void reloadConfig(Message<JsonObject> message) {
+        if (!(configProvider instanceof ConfigProviderDiff)) {
+            message.fail(ERROR_UNKNOWN_ACTION_CODE, "Config reload requires the diff config provider");
+            return;
+        }
+        final JsonObject newConfig = message.body().getJsonObject("config");
+        final Future<JsonObject> future;
+        if (newConfig != null) {
+            future = Future.succeededFuture(newConfig);
+        } else if (config().getString("configPath") != null) {
+            future = vertx.fileSystem().readFile(config().getString("configPath")).map(Buffer::toJsonObject);
+        } else {
+            future = Future.failedFuture("Missing config or configPath");
+        }
+        future.onSuccess(conf -> {
+            final ConfigChangeEvent event = ((ConfigProviderDiff) configProvider).reload(conf);
+            if (event == null) {
+                message.fail(ERROR_NO_MODULE_CODE, "No service in the configuration");
+                return;
+            }
+            final JsonObject reply = new JsonObject()
+                .put("deployed", event.getServicesToDeploy().size())
+                .put("undeployed", event.getServicesToUndeploy().size())
+                .put("restarted", event.getServicesToRestart().size());
+            if (event.hasPendingTasks()) {
+                event.onEnd(success -> message.reply(reply.put("status", success ? "ok" : "error")));
+            } else {
+                message.reply(reply.put("status", "ok"));
+            }
+        }).onFailure(e -> {
+            log.error("Error reloading config", e);
+            message.fail(ERROR_RESTARTING_MODULE_CODE, "Error reloading config : " + e.getMessage());
+        });
+    }
+
+    /**
+     * Node readiness probe : 200 when the node is ready, 503 otherwise.
+     */
+    private void startReadinessEndpoint() {
+        final Integer port = config().getInteger("readinessPort");
+        if (port == null) {
+            return;
+        }
+        vertx.createHttpServer().requestHandler(request -> {
+            final JsonObject readiness = NodeReadiness.getInstance().toJson();
+            request.response().setStatusCode(readiness.getBoolean("ready") ? 200 : 503)
+                .putHeader("Content-Type", "application/json")
+                .end(readiness.encode());
+        }).listen(port)
+            .onSuccess(s -> log.info("Readiness endpoint listening on port " + port))
+            .onFailure(e -> log.error("Error starting readiness endpoint on port " + port, e));
+    }
+
+    Handler<Message<JsonObject>> deploymentActions() {
         return message -> {
             final String action = message.body().getString("action");
             switch (action) {
                 case "restart-module":
                     final String moduleName = message.body().getString("module-name", "");
-                    deployer.restart(configProvider.getServiceByName(moduleName))
+                    scheduler.execute(() -> deployer.restart(configProvider.getServiceByName(moduleName)))
                             .onSuccess( s -> message.reply(new JsonObject().put("status", "ok")))
                             .onFailure( e -> {
                                 log.error("Error restarting module " + moduleName, e);
                                 message.fail(ERROR_RESTARTING_MODULE_CODE, "Error restarting module " + moduleName);
                             });
                     break;
+                case "restart-modules":
+                    restartModules(message);
+                    break;
+                case "timeline":
+                    message.reply(DeploymentTimeline.getLastReport());
+                    break;
+                case "reload-config":
+                    reloadConfig(message);
+                    break;
+                case "readiness":
+                    message.reply(NodeReadiness.getInstance().toJson());
+                    break;
+                case "shared-libraries":
+                    message.reply(SharedLibraryRegistry.getInstance().toJson());
+                    break;
+                case "classloaders":
+                    message.reply(ClassLoaderTracker.getInstance().toJson());
+                    break;
                 default:
                     message.fail(ERROR_UNKNOWN_ACTION_CODE, "Unknown action");
             }
         };
     }
 
+    /**
+     * Restarts a list of modules ("modules") or the modules matching a glob ("glob") on their artifact name,
+     * dependencies first and at most "concurrency" at a time. The progress of each module is published on
+     * {@link #PROGRESS_ADDRESS} and the reply contains the result and duration of every module. The modules depending
+     * on a failed one are not restarted and are reported with a "skipped" status.
+     */
+    private void restartModules(Message<JsonObject> message) {
+        final JsonObject body = message.body();
+        final List<JsonObject> services = new ArrayList<>();
+        final JsonArray modules = body.getJsonArray("modules");
+        if (modules != null) {
+            for (final Object module : modules) {
+                final JsonObject service = configProvider.getServiceByName(String.valueOf(module));
+                if (service != null) {
+                    services.add(service);
+                } else {
+                    log.warn("Module not found for restart : " + module);
+                }
+            }
+        } else if (body.getString("glob") != null) {
+            final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + body.getString("glob"));
+            for (final JsonObject service : configProvider.getServices()) {
+                final String[] parts = service.getString("name", "").split("~");
+                if (parts.length > 1 && matcher.matches(Paths.get(parts[1]))) {
+                    services.add(service);
+                }
+            }
+        }
+        if (services.isEmpty()) {
+            message.fail(ERROR_NO_MODULE_CODE, "No module to restart");
+            return;
+        }
+        final int concurrency = body.getInteger("concurrency", config().getInteger("restartConcurrency", 2));
+        final JsonArray results = new JsonArray();
+        final long start = System.currentTimeMillis();
+        log.info("Restarting " + services.size() + " modules (concurrency=" + concurrency + ")");
+        scheduler.execute(() -> DeploymentPlan.of(services).execute(concurrency, service -> {
+            final String name = service.getString("name");
+            final long moduleStart = System.currentTimeMillis();
+            vertx.eventBus().publish(PROGRESS_ADDRESS, new JsonObject()
+                .put("action", "restart-modules").put("module", name).put("status", "started"));
+            return deployer.restart(service).onComplete(res -> {
+                final JsonObject result = new JsonObject()
+                    .put("action", "restart-modules").put("module", name)
+                    .put("status", res.succeeded() ? "ok" : "error")
+                    .put("duration", System.currentTimeMillis() - moduleStart);
+                if (res.failed()) {
+                    log.error("Error restarting module " + name, res.cause());
+                    result.put("message", res.cause().getMessage());
+                }
+                synchronized (results) {
+                    results.add(result);
+                }
+                vertx.eventBus().publish(PROGRESS_ADDRESS, result);
+            });
+        }, (service, failed) -> {
+            final JsonObject result = new JsonObject()
+                .put("action", "restart-modules").put("module", service.getString("name"))
+                .put("status", "skipped").put("message", failed + " failed");
+            synchronized (results) {
+                results.add(result);
+            }
+            vertx.eventBus().publish(PROGRESS_ADDRESS, result);
+        })).onComplete(res -> {
+            final JsonObject reply = new JsonObject()
+                .put("status", res.succeeded() ? "ok" : "error")
+                .put("duration", System.currentTimeMillis() - start);
+            synchronized (results) {
+                reply.put("modules", results.copy());
+            }
+            message.reply(reply);
+        });
+    }
+
     @Override
     public void stop() throws Exception {
         configProvider.stop(vertx);
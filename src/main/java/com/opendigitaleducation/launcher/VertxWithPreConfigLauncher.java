@@ -1,12 +1,18 @@
 package com.opendigitaleducation.launcher;
 
+import com.opendigitaleducation.launcher.utils.ContainerResources;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.vertx.core.Launcher;
+import io.vertx.core.Vertx;
 import io.vertx.core.VertxOptions;
 import io.vertx.core.json.JsonObject;
 import io.vertx.micrometer.MicrometerMetricsOptions;
 import io.vertx.micrometer.VertxJmxMetricsOptions;
+import io.vertx.micrometer.backends.BackendRegistries;
 import io.vertx.micrometer.impl.VertxMetricsFactoryImpl;
 
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 /**
@@ -17,12 +23,20 @@ import java.util.logging.Logger;
  */
 public class VertxWithPreConfigLauncher extends Launcher {
 
+    private static final String TRANSPORT_NIO = "nio";
+    private static final String TRANSPORT_EPOLL = "epoll";
+    private static final String TRANSPORT_AUTO = "auto";
     private static final Logger logger = Logger.getLogger(VertxWithPreConfigLauncher.class.getCanonicalName());
     /**
      * Metrics options coming from the configuration (-conf argument).
      */
     private JsonObject metricsOptions = null;
     private int workerPoolSize = VertxOptions.DEFAULT_WORKER_POOL_SIZE;
+    private JsonObject config = new JsonObject();
+    /**
+     * Transport mode : nio, epoll or auto (epoll when available), null to keep the Vert.x options.
+     */
+    private String transport = null;
 
     /**
      * Main entry point.
@@ -44,15 +58,116 @@ public class VertxWithPreConfigLauncher extends Launcher {
             metricsOptionsObj.setJmxMetricsOptions(new VertxJmxMetricsOptions().setEnabled(true));
             options.setMetricsOptions(metricsOptionsObj);
         }
-        logger.fine("maxWorkerPoolSize is " + options.getWorkerPoolSize());
-        options.setWorkerPoolSize(workerPoolSize);
-        logger.fine("maxWorkerPoolSize is now " + options.getWorkerPoolSize());
+        if (config.getBoolean("autoTune", false)) {
+            autoTune(options);
+        } else {
+            logger.fine("maxWorkerPoolSize is " + options.getWorkerPoolSize());
+            options.setWorkerPoolSize(workerPoolSize);
+            logger.fine("maxWorkerPoolSize is now " + options.getWorkerPoolSize());
+        }
+        selectTransport(options);
         super.beforeStartingVertx(options);
     }
 
+    @Override
+    public void afterStartingVertx(Vertx vertx) {
+        final String inUse = vertx.isNativeTransportEnabled() ? TRANSPORT_EPOLL : TRANSPORT_NIO;
+        if ((TRANSPORT_EPOLL.equals(transport) || TRANSPORT_AUTO.equals(transport)) && !vertx.isNativeTransportEnabled()) {
+            logger.warning("Native transport not enabled, falling back to nio : " + vertx.unavailableNativeTransportCause());
+        }
+        logger.info("Transport in use : " + inUse);
+        final MeterRegistry registry = BackendRegistries.getDefaultNow();
+        if (registry != null) {
+            Gauge.builder("vertx.transport", () -> 1).tag("transport", inUse)
+                .description("Transport used by Vert.x").register(registry);
+        }
+        super.afterStartingVertx(vertx);
+    }
+
+    /**
+     * Without transport, the preferNativeTransport of the Vert.x options is left as configured.
+     */
+    void selectTransport(VertxOptions options) {
+        if (transport == null) {
+            return;
+        }
+        if (TRANSPORT_EPOLL.equals(transport) || TRANSPORT_AUTO.equals(transport)) {
+            options.setPreferNativeTransport(preferNativeTransport());
+        } else if (TRANSPORT_NIO.equals(transport)) {
+            options.setPreferNativeTransport(false);
+        } else {
+            logger.warning("Unknown transport " + transport + ", using the Vert.x options");
+        }
+    }
+
+    private boolean preferNativeTransport() {
+        final boolean available = isEpollAvailable();
+        if (!available && TRANSPORT_EPOLL.equals(transport)) {
+            logger.warning("epoll transport requested but not available, falling back to nio");
+        } else if (!available) {
+            logger.info("epoll transport not available, using nio");
+        }
+        return available;
+    }
+
+    /**
+     * The native transport is an optional dependency : it is probed by reflection so that a missing or
+     * incompatible library falls back to nio.
+     */
+    static boolean isEpollAvailable() {
+        try {
+            final Class<?> epoll = Class.forName("io.netty.channel.epoll.Epoll");
+            return (Boolean) epoll.getMethod("isAvailable").invoke(null);
+        } catch (Throwable e) {
+            logger.fine("epoll transport probe failed : " + e);
+            return false;
+        }
+    }
+
     @Override
     public void afterConfigParsed(JsonObject config) {
         this.metricsOptions = config.getJsonObject("metricsOptions");
         this.workerPoolSize = config.getInteger("workerPoolSize", VertxOptions.DEFAULT_WORKER_POOL_SIZE);
+        this.config = config;
+        this.transport = config.getString("transport");
+    }
+
+    /**
+     * Sizes the pools of Vert.x from the CPU quota and memory limit of the container instead of the CPU count
+     * of the host. Values set in the configuration take precedence.
+     */
+    private void autoTune(VertxOptions options) {
+        final ContainerResources resources = ContainerResources.detect();
+        final int cpus = resources.getEffectiveCpus();
+        final long memory = resources.getMemoryLimit();
+        logger.info(String.format("Auto-tuning Vert.x options for %s : %s effective CPUs (%s available processors)",
+                resources, cpus, Runtime.getRuntime().availableProcessors()));
+        options.setEventLoopPoolSize(tuned("eventLoopPoolSize", 2 * cpus, "2 x " + cpus + " effective CPUs"));
+        int workers = Math.max(8, Math.min(cpus * 8, 40));
+        String workersReason = "8 x " + cpus + " effective CPUs, between 8 and 40";
+        if (memory > 0 && memory < 1024L * 1024 * 1024 && workers > 16) {
+            workers = 16;
+            workersReason = "memory limit of " + (memory / (1024 * 1024)) + "MB";
+        }
+        options.setWorkerPoolSize(tuned("workerPoolSize", workers, workersReason));
+        options.setInternalBlockingPoolSize(tuned("internalBlockingPoolSize", Math.max(4, Math.min(cpus * 4, 20)),
+                "4 x " + cpus + " effective CPUs, between 4 and 20"));
+        // a throttled event loop is stalled by the quota itself : avoid blocked thread false positives
+        final boolean throttled = cpus <= 2;
+        final String checkerReason = throttled ? "CPU quota of " + cpus + " CPUs, less than 3" : "Vert.x default";
+        options.setMaxEventLoopExecuteTime(tuned("maxEventLoopExecuteTime", throttled ? 4000 : 2000, checkerReason));
+        options.setMaxEventLoopExecuteTimeUnit(TimeUnit.MILLISECONDS);
+        options.setBlockedThreadCheckInterval(tuned("blockedThreadCheckInterval", throttled ? 2000 : 1000,
+                checkerReason));
+        options.setBlockedThreadCheckIntervalUnit(TimeUnit.MILLISECONDS);
+    }
+
+    private int tuned(String key, int value, String reason) {
+        if (config.containsKey(key)) {
+            logger.info(key + " = " + config.getInteger(key) + " (configuration)");
+            return config.getInteger(key);
+        }
+        logger.info(key + " = " + value + " (" + reason + ")");
+        return value;
     }
 }
@@ -0,0 +1,255 @@
+package com.opendigitaleducation.launcher.classloader;
+
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+/**
+ * Lifecycle of the module class loaders. The deployments of the same module generation (e.g. the extra instances
+ * of the autoscaler) share a class loader, which is closed with the shared library layers it uses when the last of
+ * these deployments is undeployed or fails. A blue/green restart uses a new generation : the class loader of the
+ * previous deployment is closed when this deployment is undeployed. Closed class loaders are tracked with phantom
+ * references : the ones still not collected {@code classLoaderLeakThreshold} ms after being closed are reported as
+ * leaked. Loaded classes and their size (estimated metaspace) are published per module.
+ */
+public class ClassLoaderTracker {
+    private static final Logger log = LoggerFactory.getLogger(ClassLoaderTracker.class);
+    private static ClassLoaderTracker instance = new ClassLoaderTracker(null, new JsonObject());
+
+    private final long leakThreshold;
+    private final Map<ModuleClassLoader, Tracked> loaders = new IdentityHashMap<>();
+    private final Map<String, ModuleClassLoader> groups = new HashMap<>();
+    private final Map<String, ModuleClassLoader> deployments = new HashMap<>();
+    private final ReferenceQueue<ModuleClassLoader> queue = new ReferenceQueue<>();
+    private final Set<Closed> closed = new HashSet<>();
+    private final Set<String> gauges = new HashSet<>();
+    private long collected = 0;
+
+    ClassLoaderTracker(Vertx vertx, JsonObject config) {
+        this.leakThreshold = config.getLong("classLoaderLeakThreshold", 600000L);
+        final long checkInterval = config.getLong("classLoaderLeakCheckInterval", 60000L);
+        if (vertx != null && checkInterval > 0) {
+            vertx.setPeriodic(checkInterval, id -> check());
+        }
+        final MeterRegistry registry = BackendRegistries.getDefaultNow();
+        if (registry != null) {
+            Gauge.builder("launcher.classloader.closed", this, ClassLoaderTracker::getClosed)
+                .description("Closed module class loaders not collected yet").register(registry);
+            Gauge.builder("launcher.classloader.leaked", this, ClassLoaderTracker::getLeaked)
+                .description("Module class loaders not collected long after being closed").register(registry);
+        }
+    }
+
+    public static synchronized ClassLoaderTracker init(Vertx vertx, JsonObject config) {
+        instance = new ClassLoaderTracker(vertx, config);
+        return instance;
+    }
+
+    public static synchronized ClassLoaderTracker getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param group module generation (groupId~artifactId~version and restart generation)
+     * @return the open class loader of the module generation, acquired by a new deployment, or null
+     */
+    public synchronized ModuleClassLoader acquire(String group) {
+        final ModuleClassLoader classLoader = groups.get(group);
+        if (classLoader != null) {
+            loaders.get(classLoader).users++;
+        }
+        return classLoader;
+    }
+
+    /**
+     * Registers the new class loader of a module generation, acquired by the deployment which created it.
+     */
+    public synchronized void register(String group, String identifier, ModuleClassLoader classLoader) {
+        loaders.put(classLoader, new Tracked(identifier, group));
+        groups.put(group, classLoader);
+        final String module = ServiceInfo.getServiceName(identifier);
+        final MeterRegistry registry = BackendRegistries.getDefaultNow();
+        if (registry != null && gauges.add(module)) {
+            Gauge.builder("launcher.classloader.classes", this, t -> t.getLoadedClasses(module))
+                .description("Classes loaded by the class loaders of the module").tag("module", module).register(registry);
+            Gauge.builder("launcher.classloader.metaspace", this, t -> t.getLoadedBytes(module))
+                .description("Size of the classes loaded by the class loaders of the module (estimated metaspace)")
+                .baseUnit("bytes").tag("module", module).register(registry);
+        }
+    }
+
+    /**
+     * The deployment uses the class loader until it is {@link #undeployed}.
+     * @return false if the class loader is already closed (another instance of the deployment failed)
+     */
+    public synchronized boolean deployed(String deploymentId, ModuleClassLoader classLoader) {
+        if (!loaders.containsKey(classLoader)) {
+            return false;
+        }
+        deployments.put(deploymentId, classLoader);
+        return true;
+    }
+
+    /**
+     * Releases the class loader of an undeployed deployment.
+     * @return false if the deployment was not using a class loader
+     */
+    public synchronized boolean undeployed(String deploymentId) {
+        final ModuleClassLoader classLoader = deployments.remove(deploymentId);
+        if (classLoader == null) {
+            return false;
+        }
+        release(classLoader);
+        return true;
+    }
+
+    /**
+     * Releases the class loader acquired by a deployment which failed : it is closed if no other deployment uses it.
+     */
+    public synchronized void release(ModuleClassLoader classLoader) {
+        final Tracked tracked = loaders.get(classLoader);
+        if (tracked == null || --tracked.users > 0) {
+            return;
+        }
+        loaders.remove(classLoader);
+        groups.remove(tracked.group, classLoader);
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            log.warn("Error when close class loader of " + tracked.identifier, e);
+        }
+        SharedLibraryRegistry.getInstance().release(tracked.identifier, classLoader);
+        closed.add(new Closed(tracked.identifier, classLoader, queue));
+    }
+
+    /**
+     * @return the class loader used by a deployment, null if it is not a module deployment
+     */
+    public synchronized ModuleClassLoader getClassLoader(String deploymentId) {
+        return deployments.get(deploymentId);
+    }
+
+    /**
+     * Forgets the collected class loaders and reports the ones not collected after the leak threshold.
+     */
+    public synchronized void check() {
+        Reference<? extends ModuleClassLoader> reference;
+        while ((reference = queue.poll()) != null) {
+            if (closed.remove(reference)) {
+                collected++;
+            }
+        }
+        final long now = System.currentTimeMillis();
+        for (final Closed c : closed) {
+            if (!c.reported && now - c.closedAt > leakThreshold) {
+                c.reported = true;
+                log.warn(String.format("Class loader of %s closed %ss ago is still not collected (leak)",
+                        c.identifier, (now - c.closedAt) / 1000));
+            }
+        }
+    }
+
+    public synchronized int getClosed() {
+        return closed.size();
+    }
+
+    public synchronized int getLeaked() {
+        int leaked = 0;
+        for (final Closed c : closed) {
+            if (c.reported) {
+                leaked++;
+            }
+        }
+        return leaked;
+    }
+
+    private List<ModuleClassLoader> loaders(String module) {
+        final List<ModuleClassLoader> classLoaders = new ArrayList<>();
+        for (final Map.Entry<ModuleClassLoader, Tracked> entry : loaders.entrySet()) {
+            if (module.equals(ServiceInfo.getServiceName(entry.getValue().identifier))) {
+                classLoaders.add(entry.getKey());
+            }
+        }
+        return classLoaders;
+    }
+
+    public synchronized int getLoadedClasses(String module) {
+        int classes = 0;
+        for (final ModuleClassLoader classLoader : loaders(module)) {
+            classes += classLoader.getLoadedClasses();
+        }
+        return classes;
+    }
+
+    public synchronized long getLoadedBytes(String module) {
+        long bytes = 0;
+        for (final ModuleClassLoader classLoader : loaders(module)) {
+            bytes += classLoader.getLoadedBytes();
+        }
+        return bytes;
+    }
+
+    public synchronized JsonObject toJson() {
+        final Map<String, JsonObject> modules = new TreeMap<>();
+        for (final Map.Entry<ModuleClassLoader, Tracked> entry : loaders.entrySet()) {
+            final ModuleClassLoader classLoader = entry.getKey();
+            final JsonObject module = modules.computeIfAbsent(entry.getValue().identifier, identifier ->
+                new JsonObject().put("name", identifier).put("classLoaders", 0).put("deployments", 0)
+                    .put("classes", 0).put("metaspace", 0L));
+            module.put("classLoaders", module.getInteger("classLoaders") + 1)
+                .put("deployments", module.getInteger("deployments") + entry.getValue().users)
+                .put("classes", module.getInteger("classes") + classLoader.getLoadedClasses())
+                .put("metaspace", module.getLong("metaspace") + classLoader.getLoadedBytes());
+        }
+        final JsonArray leaked = new JsonArray();
+        for (final Closed c : closed) {
+            if (c.reported) {
+                leaked.add(new JsonObject().put("name", c.identifier).put("closedAt", c.closedAt));
+            }
+        }
+        return new JsonObject().put("modules", new JsonArray(new ArrayList<>(modules.values())))
+            .put("closed", closed.size()).put("collected", collected).put("leaked", leaked);
+    }
+
+    private static class Tracked {
+        private final String identifier;
+        private final String group;
+        private int users = 1;
+
+        Tracked(String identifier, String group) {
+            this.identifier = identifier;
+            this.group = group;
+        }
+    }
+
+    private static class Closed extends PhantomReference<ModuleClassLoader> {
+        private final String identifier;
+        private final long closedAt = System.currentTimeMillis();
+        private boolean reported = false;
+
+        Closed(String identifier, ModuleClassLoader classLoader, ReferenceQueue<ModuleClassLoader> queue) {
+            super(classLoader, queue);
+            this.identifier = identifier;
+        }
+    }
+}
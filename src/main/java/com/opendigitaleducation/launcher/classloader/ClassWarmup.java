@@ -0,0 +1,174 @@
+package com.opendigitaleducation.launcher.classloader;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Warm-up of the modules ({@code warmup}, disabled by default). The classes loaded by a module during its first
+ * {@code warmupRecordDuration} ms are recorded in a class list per module version (in {@code <services>/.warmup}).
+ * When a version with a class list is deployed again, these classes are loaded and initialized on the
+ * {@code warmupPoolSize} threads of a worker pool before the module is registered in the service discovery, for
+ * at most {@code warmupTimeout} ms (the remaining classes are still loaded in background).
+ */
+public class ClassWarmup {
+    public static final String WARMUP_DIRECTORY = ".warmup";
+    private static final Logger log = LoggerFactory.getLogger(ClassWarmup.class);
+    private static ClassWarmup instance = new ClassWarmup(null, null, new JsonObject().put("warmup", false));
+
+    private final Vertx vertx;
+    private final Path warmupPath;
+    private final boolean enabled;
+    private final long recordDuration;
+    private final int maxClasses;
+    private final int poolSize;
+    private final long timeout;
+    private WorkerExecutor executor;
+
+    ClassWarmup(Vertx vertx, String servicesPath, JsonObject config) {
+        this.vertx = vertx;
+        this.warmupPath = servicesPath == null ? null : Paths.get(servicesPath, WARMUP_DIRECTORY);
+        this.enabled = vertx != null && config.getBoolean("warmup", false);
+        this.recordDuration = config.getLong("warmupRecordDuration", 300000L);
+        this.maxClasses = config.getInteger("warmupMaxClasses", 20000);
+        this.poolSize = Math.max(1, config.getInteger("warmupPoolSize", 2));
+        this.timeout = config.getLong("warmupTimeout", 30000L);
+    }
+
+    public static synchronized ClassWarmup init(Vertx vertx, String servicesPath, JsonObject config) {
+        instance = new ClassWarmup(vertx, servicesPath, config);
+        return instance;
+    }
+
+    public static synchronized ClassWarmup getInstance() {
+        return instance;
+    }
+
+    private Path classList(String identifier) {
+        return warmupPath.resolve(identifier + ".classes");
+    }
+
+    /**
+     * Attaches the new class loader of a module being deployed : its loaded classes are recorded until it is
+     * warmed up.
+     */
+    public void attach(ModuleClassLoader classLoader) {
+        if (!enabled) {
+            return;
+        }
+        classLoader.startRecording(maxClasses);
+    }
+
+    /**
+     * Preloads the recorded classes of a deployed module with the class loader which defines its verticle, or
+     * records them if its version has no class list yet. Class loaders which were not attached (e.g. shared with
+     * a running deployment) are not warmed up.
+     * @return a future completed when the classes are loaded or after the warm-up timeout, never failed
+     */
+    public Future<Void> warmup(String identifier, ModuleClassLoader classLoader) {
+        if (!enabled || classLoader == null || !classLoader.isRecording()) {
+            return Future.succeededFuture();
+        }
+        return vertx.fileSystem().readFile(classList(identifier).toString()).transform(ar -> {
+            if (ar.failed()) {
+                vertx.setTimer(recordDuration, id -> save(identifier, classLoader.stopRecording()));
+                return Future.succeededFuture();
+            }
+            classLoader.stopRecording();
+            final List<String> names = new ArrayList<>();
+            for (final String name : ar.result().toString().split("\n")) {
+                if (!name.isEmpty()) {
+                    names.add(name);
+                }
+            }
+            return preload(identifier, classLoader, names);
+        });
+    }
+
+    private Future<Void> preload(String identifier, ClassLoader classLoader, List<String> names) {
+        if (names.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        final long start = System.currentTimeMillis();
+        final List<Future<Integer>> chunks = new ArrayList<>();
+        final int chunkSize = (names.size() + poolSize - 1) / poolSize;
+        for (int i = 0; i < names.size(); i += chunkSize) {
+            final List<String> chunk = names.subList(i, Math.min(names.size(), i + chunkSize));
+            chunks.add(executor().executeBlocking(() -> {
+                int loaded = 0;
+                for (final String name : chunk) {
+                    try {
+                        Class.forName(name, true, classLoader);
+                        loaded++;
+                    } catch (Throwable e) {
+                        log.debug("Warm-up of " + identifier + " could not load " + name + " : " + e);
+                    }
+                }
+                return loaded;
+            }, false));
+        }
+        final Promise<Void> promise = Promise.promise();
+        final long timerId = vertx.setTimer(Math.max(1, timeout), id -> {
+            if (promise.tryComplete()) {
+                log.warn("Warm-up of " + identifier + " still running after " + timeout + "ms, registering it");
+            }
+        });
+        Future.join(chunks).onComplete(ar -> {
+            vertx.cancelTimer(timerId);
+            int loaded = 0;
+            for (final Future<Integer> chunk : chunks) {
+                loaded += chunk.succeeded() ? chunk.result() : 0;
+            }
+            log.info(String.format("Warm-up of %s loaded %s/%s classes in %sms", identifier, loaded, names.size(),
+                    System.currentTimeMillis() - start));
+            promise.tryComplete();
+        });
+        return promise.future();
+    }
+
+    private synchronized WorkerExecutor executor() {
+        if (executor == null) {
+            executor = vertx.createSharedWorkerExecutor("launcher-warmup", poolSize);
+        }
+        return executor;
+    }
+
+    private void save(String identifier, Set<String> names) {
+        if (names == null || names.isEmpty()) {
+            return;
+        }
+        final String artifact = identifier.substring(0, identifier.lastIndexOf('~') + 1);
+        vertx.executeBlocking(() -> {
+            Files.createDirectories(warmupPath);
+            // the class lists of the other versions of the module are obsolete
+            try (Stream<Path> lists = Files.list(warmupPath)) {
+                for (final Path list : (Iterable<Path>) lists::iterator) {
+                    final String file = list.getFileName().toString();
+                    if (!artifact.isEmpty() && file.startsWith(artifact) && !file.equals(identifier + ".classes")) {
+                        Files.deleteIfExists(list);
+                    }
+                }
+            }
+            final Path tmp = warmupPath.resolve(identifier + ".classes.tmp");
+            Files.write(tmp, String.join("\n", new TreeSet<>(names)).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, classList(identifier), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return null;
+        }, false).onSuccess(v -> log.info("Recorded " + names.size() + " classes for the warm-up of " + identifier))
+            .onFailure(e -> log.error("Error writing the warm-up class list of " + identifier, e));
+    }
+}
@@ -0,0 +1,182 @@
+package com.opendigitaleducation.launcher.classloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Class loader of a module whose shared library packages are loaded by their {@link SharedLibraryLayer}
+ * (one instance of these classes for all the modules with the same copy of the library) and the other classes
+ * from the module class path. A package whose layer fails to link is loaded from the module class path.
+ * The names of the loaded classes can be recorded for the warm-up of next deployments.
+ */
+public class ModuleClassLoader extends URLClassLoader {
+    private static final Logger log = LoggerFactory.getLogger(ModuleClassLoader.class);
+    private final List<SharedLibraryLayer> layers;
+    private final Set<SharedLibraryLayer> localLayers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger classes = new AtomicInteger();
+    private final AtomicLong classBytes = new AtomicLong();
+    private final Map<File, JarFile> jars = new HashMap<>();
+    private volatile Set<String> recorded;
+    private int maxRecorded;
+
+    public ModuleClassLoader(URL[] urls, ClassLoader parent, List<SharedLibraryLayer> layers) {
+        super(urls, parent);
+        this.layers = layers;
+    }
+
+    private SharedLibraryLayer layer(String name, char separator) {
+        for (final SharedLibraryLayer layer : layers) {
+            if (localLayers.contains(layer)) {
+                continue;
+            }
+            final String prefix = separator == '.' ? layer.getPrefix() : layer.getPrefix().replace('.', separator);
+            if (name.startsWith(prefix) && name.length() > prefix.length() && name.charAt(prefix.length()) == separator) {
+                return layer;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        final SharedLibraryLayer layer = layer(name, '.');
+        if (layer != null) {
+            try {
+                final Class<?> clazz = layer.loadClass(name);
+                record(name);
+                return clazz;
+            } catch (LinkageError e) {
+                layer.linkageFailed();
+                if (localLayers.add(layer)) {
+                    log.warn("Shared library " + layer.getPrefix() + " is not self-contained, it is loaded by the " +
+                        "module from now on (" + e + ")");
+                }
+            }
+        }
+        return super.loadClass(name, resolve);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        final Class<?> clazz = super.findClass(name);
+        record(name);
+        classes.incrementAndGet();
+        classBytes.addAndGet(classFileSize(name.replace('.', '/') + ".class"));
+        return clazz;
+    }
+
+    private long classFileSize(String entry) {
+        for (final URL url : getURLs()) {
+            try {
+                final File file = new File(url.toURI());
+                if (file.isDirectory()) {
+                    final File classFile = new File(file, entry);
+                    if (classFile.isFile()) {
+                        return classFile.length();
+                    }
+                } else {
+                    final JarEntry jarEntry = jar(file).getJarEntry(entry);
+                    if (jarEntry != null) {
+                        return Math.max(0, jarEntry.getSize());
+                    }
+                }
+            } catch (Exception e) {
+                // the size is only used for metrics
+            }
+        }
+        return 0;
+    }
+
+    private synchronized JarFile jar(File file) throws IOException {
+        JarFile jar = jars.get(file);
+        if (jar == null) {
+            jar = new JarFile(file);
+            jars.put(file, jar);
+        }
+        return jar;
+    }
+
+    /**
+     * @return number of classes defined by the class loader
+     */
+    public int getLoadedClasses() {
+        return classes.get();
+    }
+
+    /**
+     * @return size of the class files defined by the class loader (estimation of its metaspace)
+     */
+    public long getLoadedBytes() {
+        return classBytes.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            for (final JarFile jar : jars.values()) {
+                jar.close();
+            }
+            jars.clear();
+        }
+        super.close();
+    }
+
+    private void record(String name) {
+        final Set<String> names = recorded;
+        if (names != null && names.size() < maxRecorded) {
+            names.add(name);
+        }
+    }
+
+    /**
+     * Records the names of the classes of the module (or of its shared libraries) loaded from now on.
+     */
+    public void startRecording(int maxClasses) {
+        maxRecorded = maxClasses;
+        recorded = ConcurrentHashMap.newKeySet();
+    }
+
+    public boolean isRecording() {
+        return recorded != null;
+    }
+
+    /**
+     * @return the names of the classes loaded since {@link #startRecording}, null if not recording
+     */
+    public Set<String> stopRecording() {
+        final Set<String> names = recorded;
+        recorded = null;
+        return names;
+    }
+
+    @Override
+    public URL getResource(String name) {
+        final SharedLibraryLayer layer = layer(name, '/');
+        return layer != null ? layer.getResource(name) : super.getResource(name);
+    }
+
+    @Override
+    public Enumeration<URL> getResources(String name) throws IOException {
+        final SharedLibraryLayer layer = layer(name, '/');
+        return layer != null ? layer.getResources(name) : super.getResources(name);
+    }
+
+    public List<SharedLibraryLayer> getLayers() {
+        return layers;
+    }
+}
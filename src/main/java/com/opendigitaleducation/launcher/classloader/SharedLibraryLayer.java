@@ -0,0 +1,99 @@
+package com.opendigitaleducation.launcher.classloader;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class loader of a library package (e.g. com.google.common) whose extracted classes are identical in several
+ * modules. It loads the classes of the package from a copy shared by these modules, the other classes from the
+ * parent (launcher) class loader. A class of the package which needs a class only present in the modules fails to
+ * link : the layer is then flagged and the modules load the package themselves.
+ */
+public class SharedLibraryLayer extends URLClassLoader {
+    private final String prefix;
+    private final String fingerprint;
+    private final File root;
+    private final AtomicLong loadedBytes = new AtomicLong();
+    private final Map<String, Integer> users = new HashMap<>();
+    private volatile boolean linkageFailed = false;
+
+    SharedLibraryLayer(String prefix, String fingerprint, File root, ClassLoader parent) throws MalformedURLException {
+        super(new URL[]{root.toURI().toURL()}, parent);
+        this.prefix = prefix;
+        this.fingerprint = fingerprint;
+        this.root = root;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        try {
+            return super.loadClass(name, resolve);
+        } catch (ClassNotFoundException e) {
+            if (!name.startsWith(prefix + ".")) {
+                // required by a class of the package but neither in the package nor on the launcher class path
+                linkageFailed = true;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        final Class<?> clazz = super.findClass(name);
+        loadedBytes.addAndGet(new File(root, name.replace('.', '/') + ".class").length());
+        return clazz;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return true if a class of the package failed to link : the package is not self-contained
+     */
+    public boolean isLinkageFailed() {
+        return linkageFailed;
+    }
+
+    void linkageFailed() {
+        linkageFailed = true;
+    }
+
+    /**
+     * @return size of the class files loaded by the layer
+     */
+    public long getLoadedBytes() {
+        return loadedBytes.get();
+    }
+
+    synchronized void acquire(String identifier) {
+        users.merge(identifier, 1, Integer::sum);
+    }
+
+    synchronized void release(String identifier) {
+        users.computeIfPresent(identifier, (k, v) -> v > 1 ? v - 1 : null);
+    }
+
+    /**
+     * @return modules (groupId~artifactId~version) using the layer
+     */
+    public synchronized int getUsers() {
+        return users.size();
+    }
+
+    /**
+     * @return size of the class files which would have been loaded again by each module without the layer
+     */
+    public long getSavedBytes() {
+        return getLoadedBytes() * Math.max(0, getUsers() - 1);
+    }
+}
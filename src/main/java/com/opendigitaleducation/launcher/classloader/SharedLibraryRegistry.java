@@ -0,0 +1,228 @@
+package com.opendigitaleducation.launcher.classloader;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+/**
+ * Shared library layers ({@code sharedLibraries}, package prefixes such as com.google.common, disabled when
+ * empty). The classes of these packages are fingerprinted in every extracted module : modules with an identical
+ * copy of a package load it from a single {@link SharedLibraryLayer} (copied in {@code <services>/.shared}), the
+ * other classes stay isolated in the module class loader. The size of the class files which are not loaded again
+ * thanks to the layers is logged and published in the {@code launcher.classloader.shared.saved} gauge.
+ */
+public class SharedLibraryRegistry {
+    public static final String SHARED_DIRECTORY = ".shared";
+    private static final Logger log = LoggerFactory.getLogger(SharedLibraryRegistry.class);
+    private static SharedLibraryRegistry instance = new SharedLibraryRegistry(null, null, Collections.emptyList());
+
+    private final Vertx vertx;
+    private final Path sharedPath;
+    private final List<String> prefixes;
+    private final Map<String, SharedLibraryLayer> layers = new LinkedHashMap<>();
+
+    SharedLibraryRegistry(Vertx vertx, String servicesPath, List<String> prefixes) {
+        this.vertx = vertx;
+        this.sharedPath = servicesPath == null ? null : Paths.get(servicesPath, SHARED_DIRECTORY);
+        // nested packages first so that the most specific layer is used
+        this.prefixes = prefixes.stream().sorted((a, b) -> b.length() - a.length()).collect(Collectors.toList());
+    }
+
+    public static synchronized SharedLibraryRegistry init(Vertx vertx, String servicesPath, JsonObject config) {
+        final JsonArray libraries = config.getJsonArray("sharedLibraries", new JsonArray());
+        final List<String> prefixes = new ArrayList<>();
+        for (final Object library : libraries) {
+            if (library instanceof String && !((String) library).isEmpty()) {
+                prefixes.add((String) library);
+            }
+        }
+        instance = new SharedLibraryRegistry(vertx, servicesPath, prefixes);
+        final MeterRegistry registry = BackendRegistries.getDefaultNow();
+        if (registry != null && instance.isEnabled()) {
+            Gauge.builder("launcher.classloader.shared.saved", instance, SharedLibraryRegistry::getSavedBytes)
+                .description("Size of the class files shared between modules instead of being loaded by each one")
+                .baseUnit("bytes").register(registry);
+        }
+        if (instance.isEnabled() && config.getBoolean("inPlaceDeploy", false)) {
+            log.warn("Shared libraries only apply to extracted modules : they are not used by the modules deployed in place");
+        }
+        return instance;
+    }
+
+    public static synchronized SharedLibraryRegistry getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return vertx != null && !prefixes.isEmpty();
+    }
+
+    /**
+     * @param identifier module (groupId~artifactId~version)
+     * @param servicePath extracted directory of the module
+     * @param classPath class path of the module (its directory, or its jars when deployed in place)
+     * @param parent parent class loader of the module
+     * @return the class loader of the module, using the layers of its shared libraries when enabled
+     */
+    public Future<ModuleClassLoader> classLoader(String identifier, String servicePath, List<String> classPath,
+            ClassLoader parent) {
+        final URL[] urls = new URL[classPath.size()];
+        try {
+            for (int i = 0; i < urls.length; i++) {
+                urls[i] = Paths.get(classPath.get(i)).toUri().toURL();
+            }
+        } catch (MalformedURLException e) {
+            return Future.failedFuture(e);
+        }
+        if (!isEnabled()) {
+            return Future.succeededFuture(new ModuleClassLoader(urls, parent, Collections.emptyList()));
+        }
+        return vertx.executeBlocking(() -> {
+            final List<SharedLibraryLayer> moduleLayers = new ArrayList<>();
+            for (final String prefix : prefixes) {
+                final Path directory = Paths.get(servicePath, prefix.replace('.', File.separatorChar));
+                if (!Files.isDirectory(directory)) {
+                    continue;
+                }
+                final SharedLibraryLayer layer = layer(prefix, fingerprint(directory), directory, parent);
+                if (layer.isLinkageFailed()) {
+                    // the module loads its own copy of a library which is not self-contained
+                    continue;
+                }
+                layer.acquire(identifier);
+                moduleLayers.add(layer);
+            }
+            if (!moduleLayers.isEmpty()) {
+                log.info(String.format("Mod %s uses shared libraries %s (%s bytes of classes shared)", identifier,
+                        moduleLayers.stream().map(SharedLibraryLayer::getPrefix).collect(Collectors.toList()), getSavedBytes()));
+            }
+            return new ModuleClassLoader(urls, parent, moduleLayers);
+        }, false);
+    }
+
+    private synchronized SharedLibraryLayer layer(String prefix, String fingerprint, Path directory, ClassLoader parent)
+            throws IOException {
+        final String key = prefix + "@" + fingerprint;
+        final SharedLibraryLayer existing = layers.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        final Path root = sharedPath.resolve(prefix + "-" + fingerprint.substring(0, 16));
+        if (!Files.isDirectory(root)) {
+            // copied then renamed so that an interrupted copy is never used
+            final Path tmp = sharedPath.resolve(prefix + "-" + UUID.randomUUID() + ".tmp");
+            copy(directory, tmp.resolve(prefix.replace('.', File.separatorChar)));
+            Files.move(tmp, root, StandardCopyOption.ATOMIC_MOVE);
+        }
+        final SharedLibraryLayer layer = new SharedLibraryLayer(prefix, fingerprint, root.toFile(), parent);
+        layers.put(key, layer);
+        return layer;
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (Stream<Path> files = Files.walk(source)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                final Path destination = target.resolve(source.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(destination);
+                } else {
+                    Files.copy(file, destination, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    static String fingerprint(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final List<Path> sorted = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            for (final Path file : sorted) {
+                digest.update(directory.relativize(file).toString().replace(File.separatorChar, '/')
+                        .getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(file));
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Releases the layers used by an undeployed module : the layers no more used are closed.
+     */
+    public synchronized void release(String identifier) {
+        release(identifier, new ArrayList<>(layers.values()));
+    }
+
+    /**
+     * Releases the layers used by a closed class loader of a module : the layers no more used are closed.
+     */
+    public synchronized void release(String identifier, ModuleClassLoader classLoader) {
+        release(identifier, classLoader.getLayers());
+    }
+
+    private void release(String identifier, List<SharedLibraryLayer> moduleLayers) {
+        for (final SharedLibraryLayer layer : moduleLayers) {
+            layer.release(identifier);
+            if (layer.getUsers() == 0 && layers.values().remove(layer)) {
+                try {
+                    layer.close();
+                } catch (IOException e) {
+                    log.warn("Error when close shared library layer : " + layer.getPrefix(), e);
+                }
+            }
+        }
+    }
+
+    public synchronized long getSavedBytes() {
+        long saved = 0;
+        for (final SharedLibraryLayer layer : layers.values()) {
+            saved += layer.getSavedBytes();
+        }
+        return saved;
+    }
+
+    public synchronized JsonObject toJson() {
+        final JsonArray array = new JsonArray();
+        for (final SharedLibraryLayer layer : layers.values()) {
+            array.add(new JsonObject()
+                .put("prefix", layer.getPrefix())
+                .put("fingerprint", layer.getFingerprint())
+                .put("users", layer.getUsers())
+                .put("loadedBytes", layer.getLoadedBytes())
+                .put("savedBytes", layer.getSavedBytes()));
+        }
+        return new JsonObject().put("enabled", isEnabled()).put("savedBytes", getSavedBytes()).put("layers", array);
+    }
+}
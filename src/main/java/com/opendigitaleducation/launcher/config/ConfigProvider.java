@@ -1,5 +1,7 @@
 package com.opendigitaleducation.launcher.config;
 
+import java.util.List;
+
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
@@ -7,6 +9,9 @@ import io.vertx.core.json.JsonObject;
 public interface ConfigProvider {
 
     static ConfigProvider create(JsonObject config) {
+        if ("diff".equals(config.getString("configProvider"))) {
+            return new ConfigProviderDiff();
+        }
         return new ConfigProviderMemory();
     }
 
@@ -22,4 +27,6 @@ public interface ConfigProvider {
 
     JsonObject getServiceByName(String name);
 
+    List<JsonObject> getServices();
+
 }
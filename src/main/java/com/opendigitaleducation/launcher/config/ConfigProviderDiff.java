@@ -0,0 +1,231 @@
+package com.opendigitaleducation.launcher.config;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Config provider emitting only the changes between the applied services and the new configuration :
+ * <ul>
+ *     <li>a new module is deployed and a removed module is undeployed</li>
+ *     <li>a module whose version changed is undeployed then deployed</li>
+ *     <li>a module whose configuration changed (canonical SHA-256 of the service) is restarted</li>
+ * </ul>
+ * The applied services are updated once a change has been applied successfully, including the partial changes
+ * sent by {@link #triggerChange(ConfigChangeEvent)}.
+ */
+public class ConfigProviderDiff extends ConfigProviderMemory {
+    private static final Logger log = LoggerFactory.getLogger(ConfigProviderDiff.class);
+    private final Map<String, AppliedService> applied = new LinkedHashMap<>();
+    private final List<Handler<ConfigChangeEvent>> handlers = new ArrayList<>();
+
+    @Override
+    public ConfigProvider onConfigChange(Handler<ConfigChangeEvent> handler) {
+        handlers.add(handler);
+        super.onConfigChange(event -> handler.handle(diff(event)));
+        return this;
+    }
+
+    /**
+     * Applies a new configuration : only the services which changed since the last applied configuration are
+     * sent to the handlers.
+     * @return the event sent to the handlers or null if the configuration has no service
+     */
+    public ConfigChangeEvent reload(JsonObject newConfig) {
+        final ConfigChangeEvent[] diff = new ConfigChangeEvent[1];
+        setConfig(valuateConfig(newConfig));
+        super.onConfigChange(event -> {
+            diff[0] = diff(event);
+            for (final Handler<ConfigChangeEvent> handler : handlers) {
+                handler.handle(diff[0]);
+            }
+        });
+        return diff[0];
+    }
+
+    /**
+     * Forwards a partial change (e.g. a new artefact of a module) as is : it only carries the changed services so
+     * it is not diffed against the whole configuration, but its services are applied once it succeeded so that
+     * the next reload does not deploy or restart them again.
+     */
+    @Override
+    public ConfigProvider triggerChange(ConfigChangeEvent event) {
+        track(event);
+        for (final Handler<ConfigChangeEvent> handler : handlers) {
+            handler.handle(event);
+        }
+        return this;
+    }
+
+    private void track(ConfigChangeEvent event) {
+        final List<JsonObject> undeployed = event.getServicesToUndeploy();
+        final List<AppliedService> deployed = new ArrayList<>();
+        for (final JsonObject service : event.getServicesToRestart()) {
+            deployed.add(new AppliedService(service));
+        }
+        for (final JsonObject service : event.getServicesToDeploy()) {
+            deployed.add(new AppliedService(service));
+        }
+        event.onEnd(success -> {
+            if (!success) {
+                return;
+            }
+            synchronized (this) {
+                for (final JsonObject service : undeployed) {
+                    final String name = service.getString("name", "");
+                    final AppliedService previous = applied.get(ServiceInfo.getServiceName(name));
+                    if (previous != null && previous.name.equals(name)) {
+                        applied.remove(previous.key);
+                    }
+                }
+                for (final AppliedService service : deployed) {
+                    applied.put(service.key, service);
+                }
+            }
+        });
+    }
+
+    synchronized ConfigChangeEvent diff(ConfigChangeEvent event) {
+        final Map<String, AppliedService> next = new LinkedHashMap<>();
+        final List<JsonObject> toDeploy = new ArrayList<>();
+        final List<JsonObject> toUndeploy = new ArrayList<>();
+        final List<JsonObject> toRestart = new ArrayList<>();
+        int unchanged = 0;
+        for (final JsonObject service : event.getServicesToDeploy()) {
+            final AppliedService current = new AppliedService(service);
+            final AppliedService previous = applied.get(current.key);
+            next.put(current.key, current);
+            if (previous == null) {
+                toDeploy.add(service);
+            } else if (!previous.name.equals(current.name)) {
+                toUndeploy.add(previous.service);
+                toDeploy.add(service);
+            } else if (!previous.hash.equals(current.hash)) {
+                toRestart.add(service);
+            } else {
+                unchanged++;
+            }
+        }
+        final Set<String> removed = new HashSet<>(applied.keySet());
+        removed.removeAll(next.keySet());
+        for (final String key : removed) {
+            toUndeploy.add(applied.get(key).service);
+        }
+        log.info(String.format("Config diff : %s to deploy, %s to undeploy, %s to restart, %s unchanged",
+                toDeploy.size(), toUndeploy.size(), toRestart.size(), unchanged));
+        final ConfigChangeEventDiff diff = new ConfigChangeEventDiff(event.getDump(), toDeploy, toUndeploy, toRestart);
+        diff.onEnd(success -> {
+            if (success) {
+                synchronized (this) {
+                    applied.clear();
+                    applied.putAll(next);
+                }
+            }
+        }).onEmpty(v -> {
+            synchronized (this) {
+                applied.clear();
+                applied.putAll(next);
+            }
+        });
+        return diff;
+    }
+
+    /**
+     * @return SHA-256 of the service encoded with sorted keys, so that the order of the fields does not matter
+     */
+    static String hash(JsonObject service) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final byte[] bytes = digest.digest(String.valueOf(canonical(service)).getBytes(StandardCharsets.UTF_8));
+            final StringBuilder sb = new StringBuilder();
+            for (byte b : bytes) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object canonical(Object value) {
+        if (value instanceof JsonObject) {
+            final Map<String, Object> sorted = new TreeMap<>();
+            for (final Map.Entry<String, Object> entry : (JsonObject) value) {
+                sorted.put(entry.getKey(), canonical(entry.getValue()));
+            }
+            return sorted;
+        } else if (value instanceof JsonArray) {
+            final List<Object> list = new ArrayList<>();
+            for (final Object item : (JsonArray) value) {
+                list.add(canonical(item));
+            }
+            return list;
+        }
+        return value;
+    }
+
+    private static class AppliedService {
+        private final String key;
+        private final String name;
+        private final String hash;
+        private final JsonObject service;
+
+        AppliedService(JsonObject service) {
+            this.name = service.getString("name", "");
+            this.key = ServiceInfo.getServiceName(name);
+            // the deployer completes the config of the deployed services : the hash is computed before
+            this.hash = hash(service);
+            this.service = service.copy();
+        }
+    }
+
+    private static class ConfigChangeEventDiff extends ConfigChangeEvent {
+        private final JsonObject dump;
+        private final List<JsonObject> toDeploy;
+        private final List<JsonObject> toUndeploy;
+        private final List<JsonObject> toRestart;
+
+        ConfigChangeEventDiff(JsonObject dump, List<JsonObject> toDeploy, List<JsonObject> toUndeploy,
+                List<JsonObject> toRestart) {
+            this.dump = dump;
+            this.toDeploy = toDeploy;
+            this.toUndeploy = toUndeploy;
+            this.toRestart = toRestart;
+        }
+
+        @Override
+        public List<JsonObject> getServicesToRestart() {
+            return new ArrayList<>(toRestart);
+        }
+
+        @Override
+        public List<JsonObject> getServicesToUndeploy() {
+            return new ArrayList<>(toUndeploy);
+        }
+
+        @Override
+        public List<JsonObject> getServicesToDeploy() {
+            return new ArrayList<>(toDeploy);
+        }
+
+        @Override
+        public JsonObject getDump() {
+            return dump;
+        }
+    }
+}
@@ -13,6 +13,7 @@ import io.vertx.core.logging.LoggerFactory;
 public class ConfigProviderMemory implements ConfigProvider {
     private static final Logger log = LoggerFactory.getLogger(ConfigProviderMemory.class);
     private JsonObject config = new JsonObject();
+    private ServiceCatalog catalog = new ServiceCatalog();
 
     public ConfigProviderMemory() {
     }
@@ -29,12 +30,12 @@ public class ConfigProviderMemory implements ConfigProvider {
         final String disabledServicesEnvVar = System.getenv("DISABLED_SERVICES");
         log.debug("DISABLED_SERVICES = " + disabledServicesEnvVar);
         final JsonArray deployableServices;
-        final List<String> enabledServices = Optional.ofNullable(enabledServicesEnvVar)
+        final Set<String> enabledServices = Optional.ofNullable(enabledServicesEnvVar)
             .map(x -> Arrays.asList(x.split(",")))
             .orElse(Collections.emptyList())
             .stream()
             .filter(x -> !x.trim().isEmpty())
-            .collect(Collectors.toList());
+            .collect(Collectors.toSet());
         final Set<String> disabledServices = Optional.ofNullable(System.getenv("DISABLED_SERVICES"))
             .map(x -> Arrays.asList(x.split(",")))
             .orElse(Collections.emptyList())
@@ -182,9 +183,20 @@ public class ConfigProviderMemory implements ConfigProvider {
     @Override
     public ConfigProvider start(Vertx vertx, JsonObject config) {
         this.config = valuateConfig(config);
+        this.catalog = ServiceCatalog.init(getServices());
         return this;
     }
 
+    protected void setConfig(JsonObject config) {
+        this.config = config;
+        final int changes = catalog.update(getServices());
+        log.debug("Service catalog updated : " + changes + " changes, " + catalog.size() + " services");
+    }
+
+    public ServiceCatalog getCatalog() {
+        return catalog;
+    }
+
     @Override
     public ConfigProvider triggerChange(ConfigChangeEvent event) {
         //DO NOTHING
@@ -297,15 +309,18 @@ public class ConfigProviderMemory implements ConfigProvider {
 
     @Override
     public JsonObject getServiceByName(String name) {
-        final JsonArray services = config.getJsonArray("services", new JsonArray());
-        for (Object o: services) {
-            if (!(o instanceof JsonObject)) continue;
-            final JsonObject service = (JsonObject) o;
-            if (service.getString("name", "").contains("~" + name + "~")) {
-                return service;
+        return catalog.getByArtifactId(name);
+    }
+
+    @Override
+    public List<JsonObject> getServices() {
+        final List<JsonObject> services = new ArrayList<>();
+        for (Object o: config.getJsonArray("services", new JsonArray())) {
+            if (o instanceof JsonObject) {
+                services.add((JsonObject) o);
             }
         }
-        return null;
+        return services;
     }
 
 }
@@ -0,0 +1,154 @@
+package com.opendigitaleducation.launcher.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Index of the configured services by identifier (groupId~artifactId~version), groupId and artifactId so that the
+ * lookups do not scan the services of the configuration. The index is updated incrementally when the configuration
+ * changes : only the added, removed or modified services (compared on their content, see
+ * {@link ConfigProviderDiff#hash(JsonObject)}) are (un)indexed, the unchanged ones only replace their instance.
+ * Services sharing a groupId or an artifactId are kept in the order of the configuration.
+ */
+public class ServiceCatalog {
+    private static ServiceCatalog instance = new ServiceCatalog();
+
+    private final Map<String, JsonObject> byIdentifier = new LinkedHashMap<>();
+    private final Map<String, String> hashes = new HashMap<>();
+    private final Map<String, List<String>> byGroupId = new HashMap<>();
+    private final Map<String, List<String>> byArtifactId = new HashMap<>();
+
+    /**
+     * Catalog of the services of the started config provider.
+     */
+    public static synchronized ServiceCatalog init(List<JsonObject> services) {
+        final ServiceCatalog catalog = new ServiceCatalog();
+        catalog.update(services);
+        instance = catalog;
+        return instance;
+    }
+
+    public static synchronized ServiceCatalog getInstance() {
+        return instance;
+    }
+
+    /**
+     * Applies a new configuration : the services which are no longer configured are removed and the new or
+     * modified ones are (re)indexed.
+     * @return number of services added, modified or removed
+     */
+    public synchronized int update(List<JsonObject> services) {
+        final Set<String> removed = new HashSet<>(byIdentifier.keySet());
+        int changes = 0;
+        for (final JsonObject service : services) {
+            final String identifier = service.getString("name", "");
+            if (identifier.isEmpty()) {
+                continue;
+            }
+            removed.remove(identifier);
+            final JsonObject previous = byIdentifier.get(identifier);
+            if (previous == service) {
+                continue;
+            }
+            final String hash = ConfigProviderDiff.hash(service);
+            if (previous != null && hash.equals(hashes.get(identifier))) {
+                byIdentifier.put(identifier, service);
+            } else {
+                put(service, hash);
+                changes++;
+            }
+        }
+        for (final String identifier : removed) {
+            remove(identifier);
+            changes++;
+        }
+        return changes;
+    }
+
+    public synchronized void put(JsonObject service) {
+        put(service, ConfigProviderDiff.hash(service));
+    }
+
+    private void put(JsonObject service, String hash) {
+        final String identifier = service.getString("name", "");
+        if (identifier.isEmpty()) {
+            return;
+        }
+        byIdentifier.put(identifier, service);
+        hashes.put(identifier, hash);
+        final String[] parts = identifier.split("~");
+        if (parts.length == 3) {
+            index(byGroupId, parts[0], identifier);
+            index(byArtifactId, parts[1], identifier);
+        }
+    }
+
+    public synchronized void remove(String identifier) {
+        if (byIdentifier.remove(identifier) == null) {
+            return;
+        }
+        hashes.remove(identifier);
+        final String[] parts = identifier.split("~");
+        if (parts.length == 3) {
+            unindex(byGroupId, parts[0], identifier);
+            unindex(byArtifactId, parts[1], identifier);
+        }
+    }
+
+    private static void index(Map<String, List<String>> index, String key, String identifier) {
+        final List<String> identifiers = index.computeIfAbsent(key, k -> new ArrayList<>());
+        if (!identifiers.contains(identifier)) {
+            identifiers.add(identifier);
+        }
+    }
+
+    private static void unindex(Map<String, List<String>> index, String key, String identifier) {
+        final List<String> identifiers = index.get(key);
+        if (identifiers == null) {
+            return;
+        }
+        identifiers.remove(identifier);
+        if (identifiers.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * @return the service groupId~artifactId~version or null if it is not configured
+     */
+    public synchronized JsonObject get(String identifier) {
+        return byIdentifier.get(identifier);
+    }
+
+    /**
+     * @return the first configured service of the artifactId or null
+     */
+    public synchronized JsonObject getByArtifactId(String artifactId) {
+        final List<String> identifiers = byArtifactId.get(artifactId);
+        return identifiers == null ? null : byIdentifier.get(identifiers.get(0));
+    }
+
+    public synchronized List<JsonObject> getByGroupId(String groupId) {
+        final List<String> identifiers = byGroupId.get(groupId);
+        if (identifiers == null) {
+            return Collections.emptyList();
+        }
+        final List<JsonObject> services = new ArrayList<>();
+        for (final String identifier : identifiers) {
+            services.add(byIdentifier.get(identifier));
+        }
+        return services;
+    }
+
+    public synchronized int size() {
+        return byIdentifier.size();
+    }
+}
@@ -0,0 +1,123 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Class data sharing (AppCDS) archives of the deployed module set. The archives are built and selected by the
+ * entrypoint (JDK 13+ dynamic archives) which passes the following system properties :
+ * <ul>
+ * <li>{@code launcher.cds.dir} : directory of the archives (under the services path), disabled when missing</li>
+ * <li>{@code launcher.cds.key} : module set of the archive used by the JVM</li>
+ * <li>{@code launcher.cds.training} : the JVM dumps an archive at exit, {@code exit} to stop the launcher
+ * {@code cdsTrainingDelay} ms after the deployment so that the archive is dumped (ignored by a clustered node which
+ * has registered its modules)</li>
+ * </ul>
+ * Once the modules are deployed, the key of the module set (hash of the deployed modules and versions) is written
+ * in {@code last.key} (the archive of this key is used at next start) and, while training, in {@code training.key}.
+ */
+public class ClassDataSharing {
+    static final String LAST_KEY = "last.key";
+    static final String TRAINING_KEY = "training.key";
+    private static final Logger log = LoggerFactory.getLogger(ClassDataSharing.class);
+
+    private final Vertx vertx;
+    private final String directory;
+    private final String archiveKey;
+    private final String training;
+    private final long trainingDelay;
+    private boolean trained = false;
+
+    public ClassDataSharing(Vertx vertx, JsonObject config) {
+        this.vertx = vertx;
+        this.directory = System.getProperty("launcher.cds.dir");
+        this.archiveKey = System.getProperty("launcher.cds.key");
+        final String training = System.getProperty("launcher.cds.training");
+        if ("exit".equals(training) && vertx.isClustered()) {
+            // the modules of a cluster node are registered and receive traffic : never stop it after the deployment
+            log.error("CDS training run is not supported in cluster mode, the archive is dumped at shutdown");
+            this.training = "shutdown";
+        } else {
+            this.training = training;
+        }
+        this.trainingDelay = config.getLong("cdsTrainingDelay", 10000L);
+    }
+
+    public boolean isEnabled() {
+        return directory != null && !directory.isEmpty();
+    }
+
+    /**
+     * @return hash of the names (groupId~artifactId~version) of the modules
+     */
+    static String key(List<String> modules) {
+        final List<String> sorted = new ArrayList<>(modules);
+        Collections.sort(sorted);
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (final String module : sorted) {
+                digest.update(module.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.substring(0, 32);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Records the module set once a configuration change is deployed.
+     */
+    public void deployed() {
+        if (!isEnabled()) {
+            return;
+        }
+        final List<String> modules = new ArrayList<>();
+        for (final Object name : vertx.sharedData().getLocalMap("deploymentsId").keySet()) {
+            modules.add(name.toString());
+        }
+        if (modules.isEmpty()) {
+            return;
+        }
+        final String key = key(modules);
+        if (archiveKey != null && !archiveKey.equals(key)) {
+            log.warn("CDS archive " + archiveKey + " was built for another module set (" + key + "), a new archive will be trained at next start");
+        }
+        final Future<Void> written = write(LAST_KEY, key);
+        if (training == null || trained) {
+            return;
+        }
+        trained = true;
+        write(TRAINING_KEY, key).compose(v -> written).onComplete(ar -> {
+            if (ar.failed()) {
+                log.error("Error writing CDS training key", ar.cause());
+                return;
+            }
+            log.info("CDS archive of module set " + key + " (" + modules.size() + " modules) will be dumped at exit");
+            if ("exit".equals(training)) {
+                vertx.setTimer(Math.max(1, trainingDelay), id -> vertx.close().onComplete(c -> System.exit(0)));
+            }
+        });
+    }
+
+    private Future<Void> write(String file, String key) {
+        return vertx.fileSystem().mkdirs(directory)
+            .compose(v -> vertx.fileSystem().writeFile(directory + File.separator + file, Buffer.buffer(key)));
+    }
+}
@@ -0,0 +1,231 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.opendigitaleducation.launcher.discovery.ServiceDiscovery;
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+/**
+ * Index of the modules (groupId.artifactId) live in the cluster, fed by the deployment notifications published
+ * by every node, and of the deployments waiting for them. A waiting deployment is completed as soon as its last
+ * dependency becomes live and the service discovery confirms that all its dependencies are still registered (the
+ * modules no more registered are removed from the index), or failed after {@code dependencyTimeout} ms. The service discovery is only queried
+ * for the dependencies which are not known to be live yet, when a deployment starts waiting and then every
+ * {@code dependencyResyncInterval} ms while deployments are waiting (notifications published before this node
+ * joined the cluster are not received).
+ */
+public class DependencyIndex {
+    static final String TIMEOUT_METRIC = "launcher.dependencies.timeout";
+    private static final Logger log = LoggerFactory.getLogger(DependencyIndex.class);
+
+    private final Vertx vertx;
+    private final ServiceDiscovery serviceDiscovery;
+    private final long timeout;
+    private final long resyncInterval;
+    private final Set<String> live = ConcurrentHashMap.newKeySet();
+    private final Map<String, List<Waiter>> waiters = new HashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private long resyncTimer = -1;
+
+    public DependencyIndex(Vertx vertx, ServiceDiscovery serviceDiscovery, String address, JsonObject config) {
+        this.vertx = vertx;
+        this.serviceDiscovery = serviceDiscovery;
+        this.timeout = config.getLong("dependencyTimeout", 600000L);
+        this.resyncInterval = config.getLong("dependencyResyncInterval", 10000L);
+        vertx.eventBus().<String>consumer(address, m -> {
+            log.debug("receive deployment info : " + m.body());
+            live(m.body());
+        });
+        final MeterRegistry registry = BackendRegistries.getDefaultNow();
+        if (registry != null) {
+            Gauge.builder("launcher.dependencies.waiting", waiting, AtomicInteger::get)
+                .description("Deployments waiting for their dependencies").register(registry);
+        }
+    }
+
+    /**
+     * @param name module waiting for its dependencies
+     * @param depends module keys (groupId.artifactId) of the dependencies
+     * @return a future completed when every dependency is live, failed after the dependency timeout
+     */
+    public Future<Void> await(String name, List<String> depends) {
+        final Waiter waiter = new Waiter(name, depends);
+        waiting.incrementAndGet();
+        if (timeout > 0) {
+            waiter.timerId = vertx.setTimer(timeout, id -> waiter.expire());
+        }
+        waitFor(waiter, waiter.depends);
+        return waiter.promise.future();
+    }
+
+    /**
+     * Registers the waiter on the dependencies not known to be live, or confirms them if they are all live.
+     */
+    private void waitFor(Waiter waiter, Collection<String> depends) {
+        final List<String> unmet;
+        synchronized (this) {
+            if (waiter.promise.future().isComplete()) {
+                return;
+            }
+            waiter.unmet.addAll(depends);
+            waiter.unmet.removeAll(live);
+            for (final String depend : waiter.unmet) {
+                waiters.computeIfAbsent(depend, k -> new ArrayList<>()).add(waiter);
+            }
+            if (!waiter.unmet.isEmpty() && resyncTimer < 0 && resyncInterval > 0) {
+                resyncTimer = vertx.setPeriodic(resyncInterval, id -> resync());
+            }
+            unmet = new ArrayList<>(waiter.unmet);
+        }
+        if (unmet.isEmpty()) {
+            confirm(waiter);
+            return;
+        }
+        log.info(String.format("Mod %s waiting for : %s", waiter.name, unmet));
+        lookup(unmet);
+    }
+
+    /**
+     * Checks with the service discovery that the dependencies of a waiter are still live before completing it : a
+     * module undeployed, or running on a node which left the cluster, is no more live and the waiter waits for it
+     * again. Without service discovery (or if it fails), the deployment notifications are trusted.
+     */
+    private void confirm(Waiter waiter) {
+        serviceDiscovery.getServicesInfos(new ArrayList<>(waiter.depends)).onComplete(ar -> {
+            if (ar.failed() || ar.result() == null) {
+                if (ar.failed()) {
+                    log.warn("Error when confirm dependencies of " + waiter.name, ar.cause());
+                }
+                waiter.complete();
+                return;
+            }
+            final List<String> gone = new ArrayList<>(waiter.depends);
+            gone.removeAll(ar.result().keySet());
+            if (gone.isEmpty()) {
+                waiter.complete();
+                return;
+            }
+            synchronized (this) {
+                live.removeAll(gone);
+            }
+            log.info(String.format("Mod %s dependencies are no more live : %s", waiter.name, gone));
+            waitFor(waiter, gone);
+        });
+    }
+
+    private void lookup(List<String> modules) {
+        if (modules.isEmpty()) {
+            return;
+        }
+        serviceDiscovery.getServicesInfos(modules)
+            .onSuccess(services -> {
+                if (services != null) {
+                    services.keySet().forEach(this::live);
+                }
+            })
+            .onFailure(ex -> log.error("Error when list deployed modules", ex));
+    }
+
+    private void resync() {
+        final List<String> unmet;
+        synchronized (this) {
+            if (waiters.isEmpty()) {
+                vertx.cancelTimer(resyncTimer);
+                resyncTimer = -1;
+                return;
+            }
+            unmet = new ArrayList<>(waiters.keySet());
+        }
+        lookup(unmet);
+    }
+
+    /**
+     * Marks a module as live and confirms the deployments for which it was the last unmet dependency.
+     */
+    public void live(String moduleKey) {
+        final List<Waiter> ready = new ArrayList<>();
+        synchronized (this) {
+            live.add(moduleKey);
+            final List<Waiter> list = waiters.remove(moduleKey);
+            if (list == null) {
+                return;
+            }
+            for (final Waiter waiter : list) {
+                waiter.unmet.remove(moduleKey);
+                if (waiter.unmet.isEmpty()) {
+                    ready.add(waiter);
+                }
+            }
+        }
+        for (final Waiter waiter : ready) {
+            confirm(waiter);
+        }
+    }
+
+    public boolean isLive(String moduleKey) {
+        return live.contains(moduleKey);
+    }
+
+    private class Waiter {
+        private final String name;
+        private final Set<String> depends;
+        private final Set<String> unmet = new LinkedHashSet<>();
+        private final Promise<Void> promise = Promise.promise();
+        private long timerId = -1;
+
+        Waiter(String name, List<String> depends) {
+            this.name = name;
+            this.depends = new LinkedHashSet<>(depends);
+        }
+
+        void complete() {
+            if (promise.tryComplete()) {
+                waiting.decrementAndGet();
+                vertx.cancelTimer(timerId);
+            }
+        }
+
+        void expire() {
+            final Set<String> missing;
+            synchronized (DependencyIndex.this) {
+                missing = new HashSet<>(unmet);
+                for (final String depend : missing) {
+                    final List<Waiter> list = waiters.get(depend);
+                    if (list != null) {
+                        list.remove(this);
+                        if (list.isEmpty()) {
+                            waiters.remove(depend);
+                        }
+                    }
+                }
+            }
+            if (promise.tryFail("Unmet dependencies after " + timeout + "ms : " + missing)) {
+                waiting.decrementAndGet();
+                log.error(String.format("Mod %s gave up waiting for : %s", name, missing));
+                final MeterRegistry registry = BackendRegistries.getDefaultNow();
+                if (registry != null) {
+                    registry.counter(TIMEOUT_METRIC, "module", ServiceInfo.getServiceName(name)).increment();
+                }
+            }
+        }
+    }
+}
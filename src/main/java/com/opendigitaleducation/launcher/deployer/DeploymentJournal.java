@@ -0,0 +1,288 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Persistent journal stored under the services path. It records the last applied configuration and, for
+ * each extracted artefact, its checksum and extraction state so that :
+ * <ul>
+ *     <li>a directory left half extracted by a crash is extracted again instead of being deployed</li>
+ *     <li>a cleaned module whose artefact did not change is not extracted again</li>
+ * </ul>
+ * The journal is rewritten atomically (temporary file then move) on every change.
+ */
+public class DeploymentJournal {
+    public static final String JOURNAL_FILE = ".deployment-journal.json";
+    public static final String EXTRACTING = "extracting";
+    public static final String EXTRACTED = "extracted";
+    public static final String STALE = "stale";
+    private static final Logger log = LoggerFactory.getLogger(DeploymentJournal.class);
+    private static DeploymentJournal instance = new DeploymentJournal(null, null);
+
+    private final Vertx vertx;
+    private final Path file;
+    private final JsonObject journal;
+
+    private final Object writeLock = new Object();
+    private long version = 0;
+    private long written = 0;
+
+    DeploymentJournal(Vertx vertx, String servicesPath) {
+        this.vertx = vertx;
+        this.file = servicesPath == null ? null : Paths.get(servicesPath, JOURNAL_FILE);
+        this.journal = load(file);
+    }
+
+    public static synchronized DeploymentJournal init(Vertx vertx, String servicesPath, boolean enabled) {
+        if (enabled && servicesPath != null && !instance.isEnabled()) {
+            instance = new DeploymentJournal(vertx, servicesPath);
+        }
+        return instance;
+    }
+
+    public static DeploymentJournal getInstance() {
+        return instance;
+    }
+
+    private static JsonObject load(Path file) {
+        final JsonObject empty = new JsonObject().put("artefacts", new JsonObject());
+        if (file == null || !Files.exists(file)) {
+            return empty;
+        }
+        try {
+            final JsonObject json = new JsonObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            if (!json.containsKey("artefacts")) {
+                json.put("artefacts", new JsonObject());
+            }
+            return json;
+        } catch (Exception e) {
+            log.error("Invalid deployment journal, starting from an empty one : " + file, e);
+            return empty;
+        }
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    public synchronized String getState(String identifier) {
+        final JsonObject artefact = journal.getJsonObject("artefacts").getJsonObject(identifier);
+        return artefact == null ? null : artefact.getString("state");
+    }
+
+    public synchronized JsonObject getDump() {
+        return journal.getJsonObject("dump");
+    }
+
+    /**
+     * Records an applied configuration. Events may only contain a part of the services (e.g. artefact
+     * listeners) so services are merged by module key with the previously applied ones.
+     */
+    public void setDump(JsonObject dump) {
+        if (!isEnabled() || dump == null) {
+            return;
+        }
+        synchronized (this) {
+            final JsonObject previous = journal.getJsonObject("dump", new JsonObject());
+            final Map<String, Object> services = new LinkedHashMap<>();
+            for (final Object service : previous.getJsonArray("services", new JsonArray())) {
+                services.put(moduleKey(service), service);
+            }
+            for (final Object service : dump.getJsonArray("services", new JsonArray())) {
+                services.put(moduleKey(service), service);
+            }
+            final JsonObject merged = dump.copy();
+            merged.put("services", new JsonArray(new ArrayList<>(services.values())).copy());
+            journal.put("dump", merged);
+        }
+        persist();
+    }
+
+    /**
+     * @return true if the service has the same configuration in the last applied configuration
+     */
+    public synchronized boolean isUnchanged(JsonObject service) {
+        final JsonObject dump = journal.getJsonObject("dump");
+        if (dump == null) {
+            return false;
+        }
+        // services of a journal read from disk are not wrapped in JsonObject
+        final JsonArray services = dump.getJsonArray("services", new JsonArray());
+        for (int i = 0; i < services.size(); i++) {
+            if (service.equals(services.getJsonObject(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the service is unchanged since the last applied configuration and its artefact is
+     * completely extracted : it can be deployed again without clean, download nor extraction. Snapshots are
+     * never reused as their artefact may change with the same configuration.
+     */
+    public synchronized boolean isReusable(JsonObject service) {
+        final String name = service.getString("name", "");
+        return isEnabled() && !name.endsWith("-SNAPSHOT") && EXTRACTED.equals(getState(name)) && isUnchanged(service);
+    }
+
+    private static String moduleKey(Object service) {
+        return service instanceof JsonObject ?
+            ServiceInfo.getServiceName(((JsonObject) service).getString("name", "")) : String.valueOf(service);
+    }
+
+    /**
+     * Marks the artefact as being extracted. The returned future completes once the journal is written so
+     * that a crash during the extraction can be detected.
+     */
+    public Future<Void> extracting(String identifier) {
+        return setState(identifier, EXTRACTING, null);
+    }
+
+    public void stale(String identifier) {
+        if (EXTRACTED.equals(getState(identifier))) {
+            setState(identifier, STALE, null);
+        }
+    }
+
+    public void remove(String identifier) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            journal.getJsonObject("artefacts").remove(identifier);
+        }
+        persist();
+    }
+
+    /**
+     * Marks the artefact as completely extracted and records its checksum.
+     */
+    public Future<Void> extracted(String identifier, String artefactPath) {
+        if (!isEnabled()) {
+            return Future.succeededFuture();
+        }
+        return checksum(artefactPath).compose(checksum -> setState(identifier, EXTRACTED, checksum));
+    }
+
+    /**
+     * @return true if the artefact has the checksum recorded at its last extraction
+     */
+    public Future<Boolean> isUnchanged(String identifier, String artefactPath) {
+        final String recorded;
+        synchronized (this) {
+            final JsonObject artefact = journal.getJsonObject("artefacts").getJsonObject(identifier);
+            recorded = artefact == null ? null : artefact.getString("checksum");
+        }
+        if (recorded == null) {
+            return Future.succeededFuture(false);
+        }
+        return checksum(artefactPath).map(recorded::equals);
+    }
+
+    /**
+     * Deletes the directories kept for cleaned modules which have not been deployed again.
+     */
+    public Future<Void> purgeStale() {
+        if (!isEnabled()) {
+            return Future.succeededFuture();
+        }
+        final List<String> stale = new ArrayList<>();
+        synchronized (this) {
+            final JsonObject artefacts = journal.getJsonObject("artefacts");
+            for (final String identifier : artefacts.fieldNames()) {
+                if (STALE.equals(artefacts.getJsonObject(identifier).getString("state"))) {
+                    stale.add(identifier);
+                }
+            }
+        }
+        final List<Future<Void>> futures = new ArrayList<>();
+        for (final String identifier : stale) {
+            log.info("Deleting stale service directory : " + identifier);
+            futures.add(vertx.fileSystem().deleteRecursive(file.getParent().resolve(identifier).toString(), true)
+                .onComplete(res -> remove(identifier)));
+        }
+        return Future.all(futures).mapEmpty();
+    }
+
+    private Future<Void> setState(String identifier, String state, String checksum) {
+        if (!isEnabled()) {
+            return Future.succeededFuture();
+        }
+        synchronized (this) {
+            final JsonObject artefacts = journal.getJsonObject("artefacts");
+            final JsonObject artefact = artefacts.getJsonObject(identifier, new JsonObject());
+            artefact.put("state", state).put("updatedAt", System.currentTimeMillis());
+            if (checksum != null) {
+                artefact.put("checksum", checksum);
+            }
+            artefacts.put(identifier, artefact);
+        }
+        return persist();
+    }
+
+    private Future<String> checksum(String artefactPath) {
+        return vertx.executeBlocking(() -> {
+            try (InputStream is = new FileInputStream(new File(artefactPath))) {
+                final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                final byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = is.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+                final StringBuilder sb = new StringBuilder();
+                for (byte b : digest.digest()) {
+                    sb.append(String.format("%02x", b));
+                }
+                return sb.toString();
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException(e);
+            }
+        }, false);
+    }
+
+    private Future<Void> persist() {
+        // the snapshot is taken under the journal lock but written outside of it so that readers never wait for
+        // the disk ; an older snapshot is never written over a newer one
+        final String snapshot;
+        final long snapshotVersion;
+        synchronized (this) {
+            snapshot = journal.encodePrettily();
+            snapshotVersion = ++version;
+        }
+        return vertx.<Void>executeBlocking(() -> {
+            synchronized (writeLock) {
+                if (snapshotVersion > written) {
+                    final Path tmp = Paths.get(file.toString() + ".tmp");
+                    Files.write(tmp, snapshot.getBytes(StandardCharsets.UTF_8));
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    written = snapshotVersion;
+                }
+            }
+            return null;
+        }, false).onFailure(e -> log.error("Failed to write deployment journal : " + file, e));
+    }
+}
@@ -0,0 +1,364 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Dependency graph of a list of services built from their {@code depends}, {@code waitDeploy} and
+ * {@code priority} fields.
+ * Independent branches are executed concurrently (up to a parallelism limit) and, among the services
+ * that are ready, the ones heading the longest remaining chain are started first so that the whole plan
+ * is bounded by its critical path.
+ */
+public class DeploymentPlan {
+    static final double DEFAULT_PRIORITY = 100;
+    private static final Logger log = LoggerFactory.getLogger(DeploymentPlan.class);
+
+    private final List<Node> nodes;
+
+    private DeploymentPlan(List<Node> nodes) {
+        this.nodes = nodes;
+        computeRanks();
+    }
+
+    public static DeploymentPlan of(List<JsonObject> services) {
+        return of(services, key -> 1L);
+    }
+
+    /**
+     * @param services services in their configuration order
+     * @param weights estimated cost of a service (by module key), used to find the critical path
+     */
+    public static DeploymentPlan of(List<JsonObject> services, Function<String, Long> weights) {
+        final List<Node> nodes = new ArrayList<>();
+        final Map<String, List<Node>> nodesByKey = new HashMap<>();
+        Node lastBarrier = null;
+        for (final JsonObject service : services) {
+            final Node node = new Node(nodes.size(), service, weights);
+            // same module twice in a plan (e.g. two versions) : keep them sequential
+            final List<Node> sameKey = nodesByKey.computeIfAbsent(node.key, k -> new ArrayList<>());
+            if (!sameKey.isEmpty()) {
+                link(sameKey.get(sameKey.size() - 1), node);
+            }
+            sameKey.add(node);
+            // waitDeploy services act as barriers : they wait for the previous barrier and every
+            // following service waits for them
+            if (lastBarrier != null) {
+                link(lastBarrier, node);
+            }
+            if (service.getBoolean("waitDeploy", false)) {
+                lastBarrier = node;
+            }
+            nodes.add(node);
+        }
+        for (final Node node : nodes) {
+            final JsonArray depends = node.service.getJsonArray(ModuleDeployerDefault.DEPENDS);
+            if (depends == null) {
+                continue;
+            }
+            for (final Object depend : depends) {
+                for (final Node dependency : nodesByKey.getOrDefault(String.valueOf(depend), new ArrayList<>())) {
+                    if (dependency != node) {
+                        link(dependency, node);
+                    }
+                }
+            }
+        }
+        breakCycles(nodes);
+        return new DeploymentPlan(nodes);
+    }
+
+    private static void link(Node dependency, Node dependent) {
+        dependency.dependents.add(dependent);
+        dependent.dependencies.add(dependency);
+    }
+
+    private static void unlink(Node dependency, Node dependent) {
+        dependency.dependents.remove(dependent);
+        dependent.dependencies.remove(dependency);
+    }
+
+    /**
+     * Cyclic dependencies would block the plan forever : backward edges (a dependency declared later in
+     * the configuration) are dropped between the services which are part of a cycle.
+     */
+    private static void breakCycles(List<Node> nodes) {
+        final List<Node> unsorted = unsortedNodes(nodes);
+        if (unsorted.isEmpty()) {
+            return;
+        }
+        final Set<Node> cycle = new LinkedHashSet<>(unsorted);
+        for (final Node node : cycle) {
+            for (final Node dependency : new ArrayList<>(node.dependencies)) {
+                if (cycle.contains(dependency) && dependency.index > node.index) {
+                    log.error("Cyclic dependency ignored : " + node.key + " -> " + dependency.key);
+                    unlink(dependency, node);
+                }
+            }
+        }
+    }
+
+    private static List<Node> unsortedNodes(List<Node> nodes) {
+        final Map<Node, Integer> remaining = new HashMap<>();
+        final List<Node> ready = new ArrayList<>();
+        for (final Node node : nodes) {
+            remaining.put(node, node.dependencies.size());
+            if (node.dependencies.isEmpty()) {
+                ready.add(node);
+            }
+        }
+        while (!ready.isEmpty()) {
+            final Node node = ready.remove(ready.size() - 1);
+            remaining.remove(node);
+            for (final Node dependent : node.dependents) {
+                final int count = remaining.get(dependent) - 1;
+                remaining.put(dependent, count);
+                if (count == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        final List<Node> unsorted = new ArrayList<>(remaining.keySet());
+        unsorted.sort(Comparator.comparingInt(n -> n.index));
+        return unsorted;
+    }
+
+    private void computeRanks() {
+        // nodes are visited in reverse topological order
+        final List<Node> sorted = topologicalOrder();
+        for (int i = sorted.size() - 1; i >= 0; i--) {
+            final Node node = sorted.get(i);
+            long max = 0;
+            for (final Node dependent : node.dependents) {
+                max = Math.max(max, dependent.rank);
+            }
+            node.rank = node.weight + max;
+        }
+    }
+
+    private List<Node> topologicalOrder() {
+        final Map<Node, Integer> remaining = new HashMap<>();
+        final PriorityQueue<Node> ready = new PriorityQueue<>(Comparator.comparingInt(n -> n.index));
+        for (final Node node : nodes) {
+            remaining.put(node, node.dependencies.size());
+            if (node.dependencies.isEmpty()) {
+                ready.add(node);
+            }
+        }
+        final List<Node> sorted = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            final Node node = ready.poll();
+            sorted.add(node);
+            for (final Node dependent : node.dependents) {
+                final int count = remaining.get(dependent) - 1;
+                remaining.put(dependent, count);
+                if (count == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * @return the same plan with its dependencies reversed : dependents are run before their dependencies
+     * (e.g. to undeploy services)
+     */
+    public DeploymentPlan reverse() {
+        final List<Node> reversed = new ArrayList<>();
+        final Map<Node, Node> copies = new HashMap<>();
+        for (final Node node : nodes) {
+            final Node copy = new Node(node);
+            copies.put(node, copy);
+            reversed.add(copy);
+        }
+        for (final Node node : nodes) {
+            for (final Node dependent : node.dependents) {
+                link(copies.get(dependent), copies.get(node));
+            }
+        }
+        return new DeploymentPlan(reversed);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return the module keys of the longest chain of the plan (according to the weights of the services)
+     */
+    public List<String> getCriticalPath() {
+        final List<String> path = new ArrayList<>();
+        Node current = null;
+        for (final Node node : nodes) {
+            if (node.dependencies.isEmpty() && (current == null || node.rank > current.rank)) {
+                current = node;
+            }
+        }
+        while (current != null) {
+            path.add(current.key);
+            Node next = null;
+            for (final Node dependent : current.dependents) {
+                if (next == null || dependent.rank > next.rank) {
+                    next = dependent;
+                }
+            }
+            current = next;
+        }
+        return path;
+    }
+
+    /**
+     * Runs the action on every service of the plan. A service is started once all its dependencies
+     * succeeded ; the services depending on a failed one are skipped.
+     * @param parallelism maximum number of actions running at the same time (unbounded if lower than 1)
+     * @param action action to run on each service
+     * @return a future failed with the first failure of the plan
+     */
+    public Future<Void> execute(int parallelism, Function<JsonObject, Future<Void>> action) {
+        return execute(parallelism, action, (service, failed) -> {});
+    }
+
+    /**
+     * Same as {@link #execute(int, Function)} but the services which are skipped are reported.
+     * @param skipped called with each skipped service and the module key of the failed service it depends on
+     */
+    public Future<Void> execute(int parallelism, Function<JsonObject, Future<Void>> action,
+            BiConsumer<JsonObject, String> skipped) {
+        return new Execution(parallelism > 0 ? parallelism : Integer.MAX_VALUE, action, skipped).start();
+    }
+
+    static class Node {
+        final int index;
+        final String key;
+        final JsonObject service;
+        final double priority;
+        final long weight;
+        final Set<Node> dependencies = new LinkedHashSet<>();
+        final Set<Node> dependents = new LinkedHashSet<>();
+        long rank;
+
+        Node(int index, JsonObject service, Function<String, Long> weights) {
+            this.index = index;
+            this.service = service;
+            this.key = ServiceInfo.getServiceName(service.getString("name", ""));
+            this.priority = service.getDouble("priority", DEFAULT_PRIORITY);
+            this.weight = Math.max(1L, weights.apply(key));
+        }
+
+        private Node(Node other) {
+            this.index = other.index;
+            this.service = other.service;
+            this.key = other.key;
+            this.priority = other.priority;
+            this.weight = other.weight;
+        }
+    }
+
+    private class Execution {
+        private final int parallelism;
+        private final Function<JsonObject, Future<Void>> action;
+        private final BiConsumer<JsonObject, String> skipped;
+        private final Promise<Void> promise = Promise.promise();
+        private final Map<Node, Integer> remaining = new HashMap<>();
+        private final PriorityQueue<Node> ready = new PriorityQueue<>(Comparator
+            .comparingLong((Node n) -> -n.rank)
+            .thenComparingDouble(n -> n.priority)
+            .thenComparingInt(n -> n.index));
+        private int running = 0;
+        private int done = 0;
+        private Throwable failure;
+
+        Execution(int parallelism, Function<JsonObject, Future<Void>> action,
+                BiConsumer<JsonObject, String> skipped) {
+            this.parallelism = parallelism;
+            this.action = action;
+            this.skipped = skipped;
+        }
+
+        synchronized Future<Void> start() {
+            for (final Node node : nodes) {
+                remaining.put(node, node.dependencies.size());
+                if (node.dependencies.isEmpty()) {
+                    ready.add(node);
+                }
+            }
+            schedule();
+            return promise.future();
+        }
+
+        private void schedule() {
+            while (running < parallelism && !ready.isEmpty()) {
+                final Node node = ready.poll();
+                running++;
+                Future<Void> future;
+                try {
+                    future = action.apply(node.service);
+                } catch (Exception e) {
+                    future = Future.failedFuture(e);
+                }
+                future.onComplete(res -> onDone(node, res.succeeded() ? null : res.cause()));
+            }
+            if (done == nodes.size() && !promise.future().isComplete()) {
+                if (failure == null) {
+                    promise.complete();
+                } else {
+                    promise.fail(failure);
+                }
+            }
+        }
+
+        private synchronized void onDone(Node node, Throwable cause) {
+            running--;
+            done++;
+            if (cause == null) {
+                for (final Node dependent : node.dependents) {
+                    final int count = remaining.get(dependent) - 1;
+                    remaining.put(dependent, count);
+                    if (count == 0) {
+                        ready.add(dependent);
+                    }
+                }
+            } else {
+                if (failure == null) {
+                    failure = cause;
+                }
+                skipDependents(node);
+            }
+            schedule();
+        }
+
+        private void skipDependents(Node node) {
+            for (final Node dependent : node.dependents) {
+                if (remaining.get(dependent) > 0) {
+                    log.error("Skipping " + dependent.service.getString("name") + " because " + node.key + " failed");
+                    remaining.put(dependent, 0);
+                    done++;
+                    try {
+                        skipped.accept(dependent.service, node.key);
+                    } catch (Exception e) {
+                        log.error("Error reporting skipped service " + dependent.key, e);
+                    }
+                    skipDependents(dependent);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.opendigitaleducation.launcher.config.ConfigChangeEvent;
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Serializes the deployment work of the launcher. Config change events received within a debounce window
+ * are merged into a single plan per module (e.g. two redeploys of the same artefact become one) and plans
+ * and exclusive tasks (e.g. module restarts) are run one at a time so that two of them never act on the
+ * same module concurrently.
+ */
+public class DeploymentScheduler {
+    private static final Logger log = LoggerFactory.getLogger(DeploymentScheduler.class);
+
+    private final Vertx vertx;
+    private final ModuleDeployer deployer;
+    private final long debounce;
+    private final RollingCoordinator rolling;
+    private final Deque<Supplier<Future<Void>>> queue = new ArrayDeque<>();
+    private MergedEvent pending;
+    private boolean running = false;
+    private int countDeployments = 0;
+
+    public DeploymentScheduler(Vertx vertx, ModuleDeployer deployer, JsonObject config) {
+        this.vertx = vertx;
+        this.deployer = deployer;
+        this.debounce = config.getLong("deployDebounce", 500L);
+        this.rolling = new RollingCoordinator(vertx, config);
+    }
+
+    /**
+     * Queues a config change event. It is merged with the other events received during the debounce window.
+     * @param clean whether undeployed services must be cleaned
+     */
+    public synchronized void submit(ConfigChangeEvent event, boolean clean) {
+        if (pending == null) {
+            final MergedEvent merged = new MergedEvent();
+            pending = merged;
+            if (debounce > 0) {
+                vertx.setTimer(debounce, id -> enqueue(merged));
+            } else {
+                enqueue(merged);
+            }
+        }
+        pending.merge(event, clean);
+    }
+
+    /**
+     * Runs a task once the plans and tasks submitted before it are done, without any other plan or task
+     * running at the same time.
+     */
+    public synchronized <T> Future<T> execute(Supplier<Future<T>> task) {
+        final Promise<T> promise = Promise.promise();
+        queue.add(() -> {
+            Future<T> future;
+            try {
+                future = task.get();
+            } catch (Exception e) {
+                future = Future.failedFuture(e);
+            }
+            future.onComplete(promise);
+            return future.mapEmpty();
+        });
+        next();
+        return promise.future();
+    }
+
+    private synchronized void enqueue(MergedEvent merged) {
+        if (pending == merged) {
+            pending = null;
+        }
+        queue.add(() -> apply(merged));
+        next();
+    }
+
+    private synchronized void next() {
+        if (running || queue.isEmpty()) {
+            return;
+        }
+        running = true;
+        final Supplier<Future<Void>> task = queue.poll();
+        Future<Void> future;
+        try {
+            future = task.get();
+        } catch (Exception e) {
+            future = Future.failedFuture(e);
+        }
+        future.onComplete(res -> {
+            synchronized (this) {
+                running = false;
+            }
+            next();
+        });
+    }
+
+    private Future<Void> apply(MergedEvent resConfig) {
+        if (!resConfig.hasPendingTasks()) {
+            resConfig.empty();
+            return Future.succeededFuture();
+        }
+        final int count;
+        synchronized (this) {
+            count = ++countDeployments;
+        }
+        log.info(String.format("Starting deployment %s: (deployed=%s, undeployed=%s, restart=%s, events=%s)", count, resConfig.getServicesToDeploy().size(), resConfig.getServicesToUndeploy().size(), resConfig.getServicesToRestart().size(), resConfig.sources.size()));
+        final DeploymentJournal journal = DeploymentJournal.getInstance();
+        // services deployed again with the configuration of the last applied one are neither cleaned nor
+        // downloaded and extracted again (e.g. launcher restart), unless their artefact changed
+        final List<JsonObject> toClean = resConfig.getServicesToClean();
+        final List<JsonObject> toDeploy = resConfig.getServicesToDeploy();
+        final int cleaned = toClean.size();
+        toClean.removeIf(service -> !resConfig.isForceCleaned(service) && toDeploy.contains(service) &&
+            journal.isReusable(service));
+        if (toClean.size() < cleaned) {
+            log.info(String.format("Deployment %s: %s services unchanged since the last applied configuration are not cleaned",
+                count, cleaned - toClean.size()));
+        }
+        // redeployed modules are rolled module by module across the cluster
+        final Set<String> redeployed = rolling.isEnabled() ? resConfig.getRedeployedKeys() : Collections.emptySet();
+        return deployer.undeployAll(without(resConfig.getServicesToUndeploy(), redeployed)).compose(res -> {
+            return deployer.cleanAll(without(toClean, redeployed));
+        }).compose(undeploy -> {
+            // deploy must be after undeploy (some service are undeploy then deploy if
+            // version changed)
+            return deployer.deployAll(without(resConfig.getServicesToDeploy(), redeployed));
+        }).compose(deploy -> {
+            if (rolling.isEnabled()) {
+                return roll(resConfig.getServicesToRestart(), service -> deployer.restart(service));
+            }
+            return deployer.restartAll(resConfig.getServicesToRestart());
+        }).compose(restart -> {
+            final List<JsonObject> services = resConfig.getServicesToDeploy();
+            services.removeIf(service -> !redeployed.contains(MergedEvent.key(service)));
+            return roll(services, service -> {
+                final String key = MergedEvent.key(service);
+                return deployer.undeploy(resConfig.getServiceToUndeploy(key))
+                    .compose(v -> deployer.cleanAll(only(toClean, key)))
+                    .compose(v -> deployer.deploy(service));
+            });
+        }).onComplete(res -> {
+            log.info(String.format("End deployment %s: (deployed=%s, undeployed=%s, restart=%s)", count, resConfig.getServicesToDeploy().size(), resConfig.getServicesToUndeploy().size(), resConfig.getServicesToRestart().size()));
+            journal.purgeStale();
+            if (res.succeeded()) {
+                journal.setDump(resConfig.getDump());
+                resConfig.end(true);
+            } else {
+                resConfig.end(false);
+                log.error("Config has not been applied because of : " + res.cause().getMessage());
+            }
+        }).otherwiseEmpty();
+    }
+
+    /**
+     * Runs the task of each service one after the other, each one in a rolling slot of its module.
+     */
+    private Future<Void> roll(List<JsonObject> services, Function<JsonObject, Future<Void>> task) {
+        Future<Void> current = Future.succeededFuture();
+        for (final JsonObject service : services) {
+            current = current.compose(v -> rolling.run(MergedEvent.key(service), () -> task.apply(service)));
+        }
+        return current;
+    }
+
+    private static List<JsonObject> without(List<JsonObject> services, Set<String> keys) {
+        if (!keys.isEmpty()) {
+            services.removeIf(service -> keys.contains(MergedEvent.key(service)));
+        }
+        return services;
+    }
+
+    private static List<JsonObject> only(List<JsonObject> services, String key) {
+        services.removeIf(service -> !key.equals(MergedEvent.key(service)));
+        return services;
+    }
+
+    /**
+     * Minimal plan of a list of events, merged per module key :
+     * <ul>
+     *     <li>a deployment followed by the undeployment of the same service cancel each other</li>
+     *     <li>the last deployment of a module wins and supersedes its restarts</li>
+     *     <li>a module is undeployed (and cleaned) once, before its deployment</li>
+     * </ul>
+     */
+    static class MergedEvent extends ConfigChangeEvent {
+        private final List<ConfigChangeEvent> sources = new ArrayList<>();
+        private final Map<String, JsonObject> toUndeploy = new LinkedHashMap<>();
+        private final Map<String, JsonObject> toClean = new LinkedHashMap<>();
+        private final Set<String> forceCleaned = new HashSet<>();
+        private final Map<String, JsonObject> toDeploy = new LinkedHashMap<>();
+        private final Map<String, JsonObject> toRestart = new LinkedHashMap<>();
+        private final JsonObject dump = new JsonObject();
+        private final JsonArray dumpServices = new JsonArray();
+
+        synchronized void merge(ConfigChangeEvent event, boolean clean) {
+            sources.add(event);
+            for (final JsonObject service : event.getServicesToUndeploy()) {
+                final String key = key(service);
+                final JsonObject deploy = toDeploy.get(key);
+                if (deploy != null && deploy.getString("name", "").equals(service.getString("name"))) {
+                    // not deployed yet : nothing to undeploy
+                    toDeploy.remove(key);
+                } else if (!toUndeploy.containsKey(key)) {
+                    toUndeploy.put(key, service);
+                }
+                if (clean) {
+                    toClean.put(service.getString("name", ""), service);
+                }
+                if (event.isForceClean()) {
+                    forceCleaned.add(service.getString("name", ""));
+                }
+            }
+            for (final JsonObject service : event.getServicesToDeploy()) {
+                final String key = key(service);
+                toRestart.remove(key);
+                toDeploy.remove(key);
+                toDeploy.put(key, service);
+            }
+            for (final JsonObject service : event.getServicesToRestart()) {
+                final String key = key(service);
+                if (!toDeploy.containsKey(key)) {
+                    toRestart.put(key, service);
+                }
+            }
+            final JsonObject eventDump = event.getDump();
+            if (eventDump != null) {
+                for (final Map.Entry<String, Object> entry : eventDump) {
+                    if ("services".equals(entry.getKey())) {
+                        dumpServices.addAll(eventDump.getJsonArray("services", new JsonArray()));
+                    } else {
+                        dump.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return keys of the modules undeployed then deployed again (e.g. new artefact or version)
+         */
+        synchronized Set<String> getRedeployedKeys() {
+            final Set<String> keys = new HashSet<>(toUndeploy.keySet());
+            keys.retainAll(toDeploy.keySet());
+            return keys;
+        }
+
+        synchronized JsonObject getServiceToUndeploy(String key) {
+            return toUndeploy.get(key);
+        }
+
+        static String key(JsonObject service) {
+            return ServiceInfo.getServiceName(service.getString("name", ""));
+        }
+
+        @Override
+        public synchronized JsonObject getDump() {
+            return dump.copy().put("services", dumpServices.copy());
+        }
+
+        @Override
+        public synchronized List<JsonObject> getServicesToRestart() {
+            return new ArrayList<>(toRestart.values());
+        }
+
+        @Override
+        public synchronized List<JsonObject> getServicesToUndeploy() {
+            return new ArrayList<>(toUndeploy.values());
+        }
+
+        @Override
+        public synchronized List<JsonObject> getServicesToDeploy() {
+            return new ArrayList<>(toDeploy.values());
+        }
+
+        synchronized List<JsonObject> getServicesToClean() {
+            return new ArrayList<>(toClean.values());
+        }
+
+        /**
+         * @return true if the service is cleaned because its artefact changed
+         */
+        synchronized boolean isForceCleaned(JsonObject service) {
+            return forceCleaned.contains(service.getString("name", ""));
+        }
+
+        @Override
+        public ConfigChangeEvent empty() {
+            for (final ConfigChangeEvent source : sources) {
+                if (source.hasPendingTasks()) {
+                    source.end(true);
+                } else {
+                    source.empty();
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public ConfigChangeEvent end(Boolean success) {
+            for (final ConfigChangeEvent source : sources) {
+                if (source.hasPendingTasks()) {
+                    source.end(success);
+                } else {
+                    source.empty();
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Structured timeline of the deployment of each module. Phases are sequential : marking a phase ends the
+ * previous one. Timelines are keyed by service identifier (groupId~artifactId~version) so that both the
+ * deployer and the verticle factory can contribute to them. Only the timeline of the latest deployed version of
+ * a module (groupId~artifactId) is kept.
+ */
+public class DeploymentTimeline {
+    public static final String TIMELINE_ADDRESS = "service-launcher.deployment.timeline";
+
+    public enum Phase {
+        Resolve, Dependencies, Download, Extract, Classload, Start, Warmup, Registration
+    }
+
+    private static final Map<String, ModuleTimeline> timelines = new ConcurrentHashMap<>();
+    private static final Map<String, String> latestNames = new ConcurrentHashMap<>();
+    private static final Map<String, Long> lastDurations = new ConcurrentHashMap<>();
+    private static volatile JsonObject lastReport = new JsonObject();
+
+    public static void begin(String name) {
+        final ModuleTimeline timeline = new ModuleTimeline(name);
+        timelines.put(name, timeline);
+        final String previous = latestNames.put(ServiceInfo.getServiceName(name), name);
+        if (previous != null && !previous.equals(name)) {
+            timelines.remove(previous);
+        }
+        timeline.mark(Phase.Resolve);
+    }
+
+    public static void mark(String name, Phase phase) {
+        final ModuleTimeline timeline = timelines.get(name);
+        if (timeline != null) {
+            timeline.mark(phase);
+        }
+    }
+
+    public static JsonObject end(String name, boolean success) {
+        final ModuleTimeline timeline = timelines.get(name);
+        if (timeline == null) {
+            return new JsonObject().put("name", name);
+        }
+        final JsonObject json = timeline.end(success);
+        if (success) {
+            lastDurations.put(ServiceInfo.getServiceName(name), json.getLong("duration"));
+        }
+        return json;
+    }
+
+    public static JsonObject get(String name) {
+        final ModuleTimeline timeline = timelines.get(name);
+        return timeline == null ? null : timeline.toJson();
+    }
+
+    /**
+     * @return duration of the last successful deployment of the module (1 if unknown)
+     */
+    public static long getLastDuration(String moduleKey) {
+        return lastDurations.getOrDefault(moduleKey, 1L);
+    }
+
+    /**
+     * Builds the report of a whole deployment plan : the timeline of every module and the critical path
+     * computed with the measured durations.
+     */
+    public static JsonObject report(List<JsonObject> services, long startedAt) {
+        final JsonArray modules = new JsonArray();
+        final Map<String, Long> durations = new HashMap<>();
+        for (final JsonObject service : services) {
+            final String name = service.getString("name", "");
+            final JsonObject timeline = get(name);
+            if (timeline != null) {
+                modules.add(timeline);
+                durations.put(ServiceInfo.getServiceName(name), timeline.getLong("duration", 0L));
+            }
+        }
+        final List<String> criticalPath = DeploymentPlan.of(services, key -> durations.getOrDefault(key, 0L))
+            .getCriticalPath();
+        long criticalPathDuration = 0;
+        for (final String key : criticalPath) {
+            criticalPathDuration += durations.getOrDefault(key, 0L);
+        }
+        final JsonObject report = new JsonObject()
+            .put("startedAt", startedAt)
+            .put("duration", System.currentTimeMillis() - startedAt)
+            .put("criticalPath", new JsonArray(criticalPath))
+            .put("criticalPathDuration", criticalPathDuration)
+            .put("modules", modules);
+        lastReport = report;
+        return report;
+    }
+
+    public static JsonObject getLastReport() {
+        return lastReport;
+    }
+
+    static class ModuleTimeline {
+        private final String name;
+        private final long startedAt = System.currentTimeMillis();
+        private final List<JsonObject> phases = new ArrayList<>();
+        private JsonObject current;
+        private long duration = -1;
+        private Boolean success;
+
+        ModuleTimeline(String name) {
+            this.name = name;
+        }
+
+        synchronized void mark(Phase phase) {
+            final long now = System.currentTimeMillis();
+            closeCurrent(now);
+            current = new JsonObject()
+                .put("phase", phase.name().toLowerCase())
+                .put("start", now - startedAt);
+            phases.add(current);
+        }
+
+        synchronized JsonObject end(boolean success) {
+            final long now = System.currentTimeMillis();
+            closeCurrent(now);
+            this.duration = now - startedAt;
+            this.success = success;
+            return toJson();
+        }
+
+        private void closeCurrent(long now) {
+            if (current != null && !current.containsKey("duration")) {
+                current.put("duration", now - startedAt - current.getLong("start"));
+            }
+        }
+
+        synchronized JsonObject toJson() {
+            final JsonArray phasesJson = new JsonArray();
+            for (final JsonObject phase : phases) {
+                phasesJson.add(phase.copy());
+            }
+            final JsonObject json = new JsonObject()
+                .put("name", name)
+                .put("startedAt", startedAt)
+                .put("duration", duration >= 0 ? duration : System.currentTimeMillis() - startedAt)
+                .put("phases", phasesJson);
+            if (success != null) {
+                json.put("success", success);
+            }
+            return json;
+        }
+    }
+}
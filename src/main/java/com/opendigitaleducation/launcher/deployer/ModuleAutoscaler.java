@@ -0,0 +1,216 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import static com.opendigitaleducation.launcher.FolderServiceFactory.FACTORY_PREFIX;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+/**
+ * Adds or removes instances of the services configured with an {@code autoscale} object :
+ * <pre>
+ * "autoscale": { "min": 1, "max": 4, "scaleUpPending": 100, "scaleDownPending": 1, "scaleUpRatio": 0.8 }
+ * </pre>
+ * Vert.x does not expose the event-loop utilisation of a deployment, so the load of a module is sampled
+ * from the Micrometer registry through the messages pending on its address (per instance) and, for worker
+ * modules, the usage ratio of its worker pool. Extra instances are deployed as additional deployments of
+ * the module (one instance each) and are undeployed first when scaling in.
+ */
+public class ModuleAutoscaler {
+    private static final Logger log = LoggerFactory.getLogger(ModuleAutoscaler.class);
+    private static final String DEFAULT_WORKER_POOL = "vert.x-worker-thread";
+
+    private final Vertx vertx;
+    private final long interval;
+    private final long cooldown;
+    private final Map<String, ScaledModule> modules = new HashMap<>();
+    private long timerId = -1;
+    private boolean missingRegistryLogged = false;
+
+    public ModuleAutoscaler(Vertx vertx, JsonObject config) {
+        this.vertx = vertx;
+        this.interval = config.getLong("autoscaleInterval", 10000L);
+        this.cooldown = config.getLong("autoscaleCooldown", 60000L);
+    }
+
+    /**
+     * Starts scaling a deployed module.
+     * @param options deployment options of the module (its instances are the base instances)
+     */
+    public synchronized void register(String name, JsonObject autoscale, DeploymentOptions options) {
+        final ScaledModule module = new ScaledModule(name, autoscale, options);
+        final ScaledModule previous = modules.put(name, module);
+        if (previous != null) {
+            // restarted module : extra instances of the previous deployment are replaced
+            previous.undeployAll();
+        }
+        log.info(String.format("Autoscaling %s between %s and %s instances", name, module.min, module.max));
+        while (module.instances() < module.min) {
+            module.scaleUp();
+        }
+        if (timerId < 0) {
+            timerId = vertx.setPeriodic(interval, id -> sample());
+        }
+    }
+
+    /**
+     * Stops scaling the module and undeploys its extra instances.
+     */
+    public synchronized Future<Void> unregister(String name) {
+        final ScaledModule module = modules.remove(name);
+        if (modules.isEmpty() && timerId >= 0) {
+            vertx.cancelTimer(timerId);
+            timerId = -1;
+        }
+        if (module == null) {
+            return Future.succeededFuture();
+        }
+        return module.undeployAll();
+    }
+
+    /**
+     * @return current number of instances of the scaled module, including the ones being deployed, or 0
+     */
+    synchronized int instances(String name) {
+        final ScaledModule module = modules.get(name);
+        return module == null ? 0 : module.instances();
+    }
+
+    private void sample() {
+        sample(BackendRegistries.getDefaultNow());
+    }
+
+    synchronized void sample(MeterRegistry registry) {
+        if (registry == null) {
+            if (!missingRegistryLogged) {
+                log.warn("Autoscaling disabled : metrics are not enabled (metricsOptions)");
+                missingRegistryLogged = true;
+            }
+            return;
+        }
+        for (final ScaledModule module : modules.values()) {
+            try {
+                module.evaluate(registry);
+            } catch (Exception e) {
+                log.error("Error while autoscaling " + module.name, e);
+            }
+        }
+    }
+
+    private class ScaledModule {
+        private final String name;
+        private final DeploymentOptions options;
+        private final String address;
+        private final String workerPool;
+        private final int base;
+        private final int min;
+        private final int max;
+        private final double scaleUpPending;
+        private final double scaleDownPending;
+        private final double scaleUpRatio;
+        private final double scaleDownRatio;
+        private final List<String> extraDeployments = new ArrayList<>();
+        private final List<Future<String>> deploying = new ArrayList<>();
+        private boolean undeployed = false;
+        private long lastChange = 0;
+
+        ScaledModule(String name, JsonObject autoscale, DeploymentOptions options) {
+            this.name = name;
+            this.options = options;
+            this.address = options.getConfig() == null ? null : options.getConfig().getString("address");
+            this.workerPool = options.isWorker() ?
+                (options.getWorkerPoolName() != null ? options.getWorkerPoolName() : DEFAULT_WORKER_POOL) : null;
+            this.base = options.getInstances();
+            this.min = Math.max(base, autoscale.getInteger("min", base));
+            this.max = Math.max(min, autoscale.getInteger("max", min));
+            this.scaleUpPending = autoscale.getDouble("scaleUpPending", 100d);
+            this.scaleDownPending = autoscale.getDouble("scaleDownPending", 1d);
+            this.scaleUpRatio = autoscale.getDouble("scaleUpRatio", 0.8);
+            this.scaleDownRatio = autoscale.getDouble("scaleDownRatio", 0.2);
+        }
+
+        synchronized int instances() {
+            return base + extraDeployments.size() + deploying.size();
+        }
+
+        synchronized void evaluate(MeterRegistry registry) {
+            final int instances = instances();
+            final double pending = address == null ? 0 : sum(registry, "vertx.eventbus.pending", "address", address)
+                / instances;
+            final double ratio = workerPool == null ? 0 : sum(registry, "vertx.pool.ratio", "pool_name", workerPool);
+            if (System.currentTimeMillis() - lastChange < cooldown) {
+                return;
+            }
+            if ((pending > scaleUpPending || ratio > scaleUpRatio) && instances < max) {
+                log.info(String.format("Scaling up %s to %s instances (pending=%.1f, pool ratio=%.2f)",
+                        name, instances + 1, pending, ratio));
+                scaleUp();
+            } else if (pending < scaleDownPending && ratio < scaleDownRatio && instances > min) {
+                log.info(String.format("Scaling down %s to %s instances (pending=%.1f, pool ratio=%.2f)",
+                        name, instances - 1, pending, ratio));
+                scaleDown();
+            }
+        }
+
+        private double sum(MeterRegistry registry, String meter, String tag, String value) {
+            double sum = 0;
+            for (final Gauge gauge : registry.find(meter).tag(tag, value).gauges()) {
+                sum += gauge.value();
+            }
+            return sum;
+        }
+
+        synchronized void scaleUp() {
+            lastChange = System.currentTimeMillis();
+            final DeploymentOptions extra = new DeploymentOptions(options).setInstances(1);
+            final Future<String> deployment = vertx.deployVerticle(FACTORY_PREFIX + ":" + name, extra);
+            deploying.add(deployment);
+            deployment.onComplete(ar -> {
+                synchronized (this) {
+                    deploying.remove(deployment);
+                    if (ar.failed()) {
+                        log.error("Error deploying extra instance of " + name, ar.cause());
+                    } else if (!undeployed) {
+                        extraDeployments.add(ar.result());
+                    }
+                }
+            });
+        }
+
+        /**
+         * Undeploys the extra instances, including the ones still being deployed.
+         */
+        synchronized Future<Void> undeployAll() {
+            undeployed = true;
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (final Future<String> deployment : deploying) {
+                futures.add(deployment.compose(vertx::undeploy));
+            }
+            for (final String deploymentId : extraDeployments) {
+                futures.add(vertx.undeploy(deploymentId));
+            }
+            extraDeployments.clear();
+            return Future.join(futures).mapEmpty();
+        }
+
+        synchronized void scaleDown() {
+            if (extraDeployments.isEmpty()) {
+                return;
+            }
+            lastChange = System.currentTimeMillis();
+            final String deploymentId = extraDeployments.remove(extraDeployments.size() - 1);
+            vertx.undeploy(deploymentId).onFailure(e -> log.error("Error undeploying extra instance of " + name, e));
+        }
+    }
+}
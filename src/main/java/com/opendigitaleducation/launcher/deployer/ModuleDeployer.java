@@ -12,7 +12,9 @@ public interface ModuleDeployer {
 
     static ModuleDeployer create(final Vertx vertx, final JsonObject config) {
         final ModuleDeployer def = new ModuleDeployerDefault(vertx, config);
-        return new ModuleDeployerRetry(config, def, vertx);
+        final ModuleDeployer retry = new ModuleDeployerRetry(config, def, vertx);
+        final ModuleDeployer lazy = new ModuleDeployerLazy(config, retry, vertx);
+        return new ModuleDeployerPlanner(config, lazy, vertx);
     }
 
     Future<Void> deploy(JsonObject services);
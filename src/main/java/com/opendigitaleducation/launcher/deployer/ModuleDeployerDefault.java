@@ -7,13 +7,17 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.opendigitaleducation.launcher.FolderServiceFactory;
+import com.opendigitaleducation.launcher.classloader.ClassLoaderTracker;
+import com.opendigitaleducation.launcher.classloader.ClassWarmup;
+import com.opendigitaleducation.launcher.classloader.ModuleClassLoader;
+import com.opendigitaleducation.launcher.classloader.SharedLibraryRegistry;
+import com.opendigitaleducation.launcher.deployer.DeploymentTimeline.Phase;
 import com.opendigitaleducation.launcher.discovery.ServiceDiscovery;
 import com.opendigitaleducation.launcher.discovery.ServiceInfo;
 import com.opendigitaleducation.launcher.hooks.Hook;
+import com.opendigitaleducation.launcher.interceptor.InFlightInterceptor;
 import com.opendigitaleducation.launcher.resolvers.ExtensionRegistry;
 import com.opendigitaleducation.launcher.utils.FileUtils;
 
@@ -23,11 +27,14 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
-import io.vertx.core.shareddata.AsyncMap;
 import io.vertx.core.shareddata.LocalMap;
 public class ModuleDeployerDefault implements ModuleDeployer {
-    private static final String DEPENDS = "depends";
+    static final String DEPENDS = "depends";
     private static final String NOTIFY_DEPLOYMENT_ADDRESS = "vertx-module-deployment";
+    static final String STOP_START = "stop-start";
+    static final String BLUE_GREEN = "blue-green";
+    private static final long IN_FLIGHT_MAX_AGE = 60000L;
+    private static final long HTTP_DRAIN_GRACE_PERIOD = 2000L;
     /** Entry keys of MANIFEST.MF file of deployed modules that should be used to populate detailed version metadata.*/
     private static final Map<String, String> manifestKeysForVersion;
     private static final Logger log = LoggerFactory.getLogger(ModuleDeployerDefault.class);
@@ -38,16 +45,19 @@ public class ModuleDeployerDefault implements ModuleDeployer {
     private final String node;
     private final Vertx vertx;
     private final String servicesPath;
+    private final DeploymentJournal journal;
+    private final NodeReadiness readiness;
+    private final String restartStrategy;
+    private final ModuleAutoscaler autoscaler;
+    private final long drainTimeout;
+    private final Long drainGracePeriod;
     private final String absoluteServicePath;
     private final JsonObject metricsOptions;
     private CustomDeployerManager customDeployer;
-    private AsyncMap<String, String> versionMap;
-    private LocalMap<String, String> versionLocalMap;
-    /** Map holding useful metadata about deployed modules. */
-    private AsyncMap<String, JsonObject> detailedVersionMap;
-    private LocalMap<String, JsonObject> detailedVersionLocalMap;
+    private final VersionRegistry versions;
     private final LocalMap<String, String> deploymentsIdMap;
     private final ServiceDiscovery serviceDiscovery;
+    private final DependencyIndex dependencies;
 
     static {
         final Map<String, String> map = new HashMap<>();
@@ -72,31 +82,40 @@ public class ModuleDeployerDefault implements ModuleDeployer {
         //
         this.servicesPath = FileUtils.absolutePath(System.getProperty("vertx.services.path"));
         customDeployer = new CustomDeployerManager(vertx, servicesPath, assetPath);
+        versions = new VersionRegistry(vertx, config.getLong("versionFlushDelay", 1000L));
+        restartStrategy = config.getString("restartStrategy", STOP_START);
+        autoscaler = new ModuleAutoscaler(vertx, config);
+        // the previous instance of a blue/green restart is drained by default
+        drainTimeout = config.getLong("drainTimeout", BLUE_GREEN.equals(restartStrategy) ? 5000L : 0L);
+        drainGracePeriod = config.getLong("drainGracePeriod");
+        if (drainTimeout > 0) {
+            vertx.eventBus().addInboundInterceptor(new InFlightInterceptor<>(true));
+            vertx.eventBus().addOutboundInterceptor(new InFlightInterceptor<>(false));
+            // requests whose requester timed out may never be replied
+            vertx.setPeriodic(IN_FLIGHT_MAX_AGE, id -> InFlightInterceptor.prune(IN_FLIGHT_MAX_AGE));
+        }
+        journal = DeploymentJournal.init(vertx, servicesPath, config.getBoolean("deploymentJournal", true));
         hook = Hook.create(vertx, config);
+        readiness = NodeReadiness.init(vertx, config);
+        SharedLibraryRegistry.init(vertx, servicesPath, config);
+        ClassWarmup.init(vertx, servicesPath, config);
+        ClassLoaderTracker.init(vertx, config);
         serviceDiscovery = ServiceDiscovery.create(vertx);
+        dependencies = new DependencyIndex(vertx, serviceDiscovery, NOTIFY_DEPLOYMENT_ADDRESS, config);
     }
 
     @Override
     public Future<Void> init() {
         final Future<Void> future;
-        final Future<Void> f1 = vertx.sharedData().<String, String>getAsyncMap("versions")
-            .compose(x -> {
-                versionMap = x;
-                return Future.<Void>succeededFuture();
-            });
-        final Future<Void> f2 = vertx.sharedData().<String, JsonObject>getAsyncMap("detailedVersions")
-            .compose(x -> {
-                detailedVersionMap = x;
-                return Future.<Void>succeededFuture();
-            });
+        final Future<Void> f1 = Future.all(vertx.sharedData().<String, String>getAsyncMap("versions"),
+                vertx.sharedData().<String, JsonObject>getAsyncMap("detailedVersions"))
+            .compose(maps -> versions.init(maps.resultAt(0), maps.resultAt(1)));
         final Future<Void> f3 = vertx.sharedData().<String, Object>getLocalAsyncMap("server")
             .compose(x -> x.put("node", node));
         final LocalMap<Object, Object> serverMap = vertx.sharedData().getLocalMap("server");
         serverMap.put("node", node);
-        versionLocalMap = vertx.sharedData().getLocalMap("versions");
-        detailedVersionLocalMap = vertx.sharedData().getLocalMap("detailedVersions");
         if(vertx.isClustered()) {
-            future = Future.all(f1, f2, f3).compose(x -> Future.succeededFuture());
+            future = Future.all(f1, f3).compose(x -> Future.succeededFuture());
         } else {
             future = Future.succeededFuture();
         }
@@ -115,6 +134,7 @@ public class ModuleDeployerDefault implements ModuleDeployer {
             return Future.succeededFuture();
         }
         log.info("Starting deployment of mod : " + name);
+        DeploymentTimeline.begin(name);
         final JsonObject config = service.getJsonObject("config", new JsonObject());
         return ServiceUtils.getServicePathFromIdentifier(name, absoluteServicePath, vertx)
         .flatMap(servicePath -> {
@@ -146,10 +166,13 @@ public class ModuleDeployerDefault implements ModuleDeployer {
                 customDeployer.deploy(service, res -> {
                     if (res.succeeded()) {
                         log.info("Custom deployment succeed :" + name);
+                        readiness.deployed(name);
+                        endTimeline(name, true);
                         promise.complete();
                         hook.emit(service, Hook.HookEvents.Deployed);
                     } else {
                         log.error("Custom deployment failed :" + name, res.cause());
+                        endTimeline(name, false);
                         promise.fail(res.cause());
                     }
                 });
@@ -160,45 +183,26 @@ public class ModuleDeployerDefault implements ModuleDeployer {
             if (!vertx.isClustered() || depends == null || depends.isEmpty()) {
                 deployVerticle(service, servicePath, deploymentOptions, promise);
             } else {
+                DeploymentTimeline.mark(name, Phase.Dependencies);
                 deployVerticleAfterDependancies(service, servicePath, deploymentOptions, promise);
             }
             return promise.future();
         });
     }
 
-    private void tryDeployVerticle(JsonObject service, String servicePath,
-            DeploymentOptions deploymentOptions, Promise<Void> promise, AtomicBoolean deploymentLaunched) {
-        if (deploymentLaunched.get()) {
-            return;
-        }
-        try {
-            final List<String> depends = service.getJsonArray(DEPENDS).getList();
-            log.info("depends modules : " + depends);
-            serviceDiscovery.getServicesInfos(depends).onSuccess(services -> {
-                final Set<String> modules = services.keySet();
-                log.info("deployed modules : " + modules);
-                if (modules.containsAll(service.getJsonArray(DEPENDS).getList())) {
-                    if (deploymentLaunched.compareAndSet(false, true)) {
-                        deployVerticle(service, servicePath, deploymentOptions, promise);
-                    }
-                }
-            }).onFailure(ex -> log.error("Error when list deployed modules", ex));
-        }catch (Exception e) {
-            log.error("Error when get keys", e);
-        }
-    }
-
     private void deployVerticleAfterDependancies(JsonObject service, String servicePath,
             DeploymentOptions deploymentOptions, Promise<Void> promise) {
-        final AtomicBoolean deploymentLaunched = new AtomicBoolean(false);
-        final JsonArray depends = service.getJsonArray(DEPENDS);
-        vertx.eventBus().<String>consumer(NOTIFY_DEPLOYMENT_ADDRESS, m -> {
-            log.info("receive deployment info : " + m.body());
-            if (depends.contains(m.body())) {
-                tryDeployVerticle(service, servicePath, deploymentOptions, promise, deploymentLaunched);
+        final String name = service.getString("name");
+        final List<String> depends = service.getJsonArray(DEPENDS).getList();
+        dependencies.await(name, depends).onComplete(res -> {
+            if (res.succeeded()) {
+                deployVerticle(service, servicePath, deploymentOptions, promise);
+            } else {
+                log.error("Error deploying required service  : " + name, res.cause());
+                endTimeline(name, false);
+                promise.fail(res.cause());
             }
         });
-        tryDeployVerticle(service, servicePath, deploymentOptions, promise, deploymentLaunched);
     }
 
     private void deployVerticle(JsonObject service, final String servicePath,
@@ -208,19 +212,37 @@ public class ModuleDeployerDefault implements ModuleDeployer {
         vertx.deployVerticle(FACTORY_PREFIX + ":" + name, deploymentOptions, ar -> {
             if (ar.succeeded()) {
                 log.info("Mod has been deployed successfully : " + name);
-                serviceDiscovery.serviceRegistration(name, deploymentOptions.getConfig())
-                    .onSuccess(v -> vertx.eventBus().publish(NOTIFY_DEPLOYMENT_ADDRESS, moduleKey))
-                    .onFailure(ex -> log.error("Error when register service", ex));
-                addAppVersion(name, ar.result(), servicePath);
-                promise.complete();
-                hook.emit(service, Hook.HookEvents.Deployed);
+                DeploymentTimeline.mark(name, Phase.Warmup);
+                final ModuleClassLoader classLoader = ClassLoaderTracker.getInstance().getClassLoader(ar.result());
+                ClassWarmup.getInstance().warmup(name, classLoader).onComplete(w -> {
+                    DeploymentTimeline.mark(name, Phase.Registration);
+                    addAppVersion(name, ar.result(), servicePath);
+                    InFlightInterceptor.track(name, deploymentOptions.getConfig().getString("address"));
+                    if (service.containsKey("autoscale")) {
+                        autoscaler.register(name, service.getJsonObject("autoscale"), deploymentOptions);
+                    }
+                    serviceDiscovery.serviceRegistration(name, deploymentOptions.getConfig())
+                        .onSuccess(v -> vertx.eventBus().publish(NOTIFY_DEPLOYMENT_ADDRESS, moduleKey))
+                        .onFailure(ex -> log.error("Error when register service", ex))
+                        .onComplete(v -> {
+                            readiness.deployed(name);
+                            endTimeline(name, true);
+                            promise.complete();
+                            hook.emit(service, Hook.HookEvents.Deployed);
+                        });
+                });
             } else {
                 log.error("Error deploying required service  : " + name, ar.cause());
+                endTimeline(name, false);
                 promise.fail(ar.cause());
             }
         });
     }
 
+    private void endTimeline(String name, boolean success) {
+        vertx.eventBus().publish(DeploymentTimeline.TIMELINE_ADDRESS, DeploymentTimeline.end(name, success));
+    }
+
     @Override
     public Future<Void> undeploy(JsonObject service) {
         final String name = service.getString("name");
@@ -245,7 +267,14 @@ public class ModuleDeployerDefault implements ModuleDeployer {
         // defaut undeployer
         log.info("Starting undeployment of mod : " + name);
         if (deploymentsIdMap.containsKey(name)) {
-            vertx.undeploy(deploymentsIdMap.get(name), ar -> {
+            autoscaler.unregister(name)
+                .recover(e -> {
+                    log.error("Error undeploying extra instances of " + name, e);
+                    return Future.succeededFuture();
+                })
+                .compose(v -> drain(service))
+                .onComplete(d -> vertx.undeploy(deploymentsIdMap.get(name), ar -> {
+                InFlightInterceptor.untrack(name);
                 if (ar.succeeded()) {
                     removeAppVersion(name);
                     log.info("Mod has been undeployed successfully : " + name);
@@ -255,7 +284,7 @@ public class ModuleDeployerDefault implements ModuleDeployer {
                     log.error("Error undeploying required service  : " + name, ar.cause());
                     future.fail(ar.cause());
                 }
-            });
+            }));
         } else {
             log.warn("Deployment ID not found for service : " + name);
             future.complete();
@@ -263,6 +292,44 @@ public class ModuleDeployerDefault implements ModuleDeployer {
         return future.future();
     }
 
+    /**
+     * Unregisters the module from the service discovery then, when the drain is enabled, fails the new event bus
+     * requests sent to its address and waits (up to the drain timeout) for the requests it was already processing
+     * to be replied. HTTP requests are not tracked : the grace period leaves time to the reverse proxy to stop
+     * routing to the module and to the in-flight requests to end.
+     */
+    private Future<Void> drain(JsonObject service) {
+        final String name = service.getString("name");
+        final long start = System.currentTimeMillis();
+        final Future<Void> unregistered = serviceDiscovery.serviceUnregistration(name)
+            .recover(e -> {
+                log.error("Error when unregister service : " + name, e);
+                return Future.succeededFuture();
+            });
+        if (drainTimeout <= 0) {
+            return unregistered;
+        }
+        final long gracePeriod = drainGracePeriod != null ? drainGracePeriod :
+            ModuleDeployerLazy.isHttpService(service) ? HTTP_DRAIN_GRACE_PERIOD : 0L;
+        return unregistered.compose(v -> {
+                final Promise<Void> grace = Promise.promise();
+                if (gracePeriod > 0) {
+                    vertx.setTimer(gracePeriod, t -> grace.complete());
+                } else {
+                    grace.complete();
+                }
+                return grace.future();
+            }).compose(v -> {
+                InFlightInterceptor.drain(name);
+                return InFlightInterceptor.awaitIdle(vertx, name, drainTimeout);
+            })
+            .map(pending -> {
+                log.info(String.format("Mod drained in %sms (%s requests still in flight) : %s",
+                        System.currentTimeMillis() - start, pending, name));
+                return null;
+            });
+    }
+
     @Override
     public Future<Void> clean(JsonObject service) {
         final String name = service.getString("name");
@@ -275,8 +342,19 @@ public class ModuleDeployerDefault implements ModuleDeployer {
             final String servicePath = getServicePath(service);
             final String ext = ExtensionRegistry.getExtensionForService(service);
             final String artefact = FileUtils.pathWithExtension(servicePath, ext);
-            log.info("Deleting dirs : " + servicePath+";"+artefact);
-            final Future<Void> deleteDir = vertx.fileSystem().deleteRecursive(servicePath, true);
+            final String id = ModuleDeployer.getServiceId(service);
+            final Future<Void> deleteDir;
+            if (DeploymentJournal.EXTRACTED.equals(journal.getState(id))) {
+                // the directory is kept until the new artefact is known to be different
+                log.info("Deleting artefact : " + artefact);
+                journal.stale(id);
+                deleteDir = Future.succeededFuture();
+            } else {
+                log.info("Deleting dirs : " + servicePath+";"+artefact);
+                journal.remove(id);
+                ModuleDescriptor.invalidate(servicePath);
+                deleteDir = vertx.fileSystem().deleteRecursive(servicePath, true);
+            }
             final Future<Void> deleteArtefact = vertx.fileSystem().delete(artefact);
             //
             Future.all(deleteDir, deleteArtefact).onComplete(resDel -> {
@@ -301,6 +379,10 @@ public class ModuleDeployerDefault implements ModuleDeployer {
         if (name == null || name.isEmpty()) {
             return Future.succeededFuture();
         }
+        if (BLUE_GREEN.equals(service.getString("restartStrategy", restartStrategy))
+                && !customDeployer.canDeploy(service)) {
+            return blueGreenRestart(service);
+        }
         log.info("Starting restart of mod : " + name);
         //
         final Promise<Void> future = Promise.promise();
@@ -315,6 +397,44 @@ public class ModuleDeployerDefault implements ModuleDeployer {
         return future.future();
     }
 
+    /**
+     * Deploys the new instance next to the running one and undeploys the previous deployment once the new
+     * one is started and registered. Servers listening on the same port are shared between both instances
+     * by Vert.x during the handover. Both instances consume the same address : before the previous one is
+     * undeployed, the launcher waits (up to the drain timeout) for the requests received before the handover.
+     */
+    private Future<Void> blueGreenRestart(JsonObject service) {
+        final String name = service.getString("name");
+        final String previousId = deploymentsIdMap.get(name);
+        if (previousId == null) {
+            log.info("Mod not deployed, deploying it instead of a blue/green restart : " + name);
+            return deploy(service);
+        }
+        log.info("Starting blue/green restart of mod : " + name);
+        FolderServiceFactory.nextGeneration(name);
+        return deploy(service).compose(v -> {
+            final Future<Integer> drained = drainTimeout > 0 ?
+                InFlightInterceptor.awaitIdle(vertx, name, drainTimeout) : Future.succeededFuture(0);
+            return drained.compose(pending -> {
+                if (pending > 0) {
+                    log.warn(pending + " requests still in flight on the previous instance of : " + name);
+                }
+                return vertx.undeploy(previousId);
+            }).transform(ar -> {
+                if (ar.succeeded()) {
+                    log.info("Previous instance has been undeployed successfully : " + name);
+                } else {
+                    log.error("Error undeploying previous instance of : " + name, ar.cause());
+                }
+                hook.emit(service, Hook.HookEvents.Restarted);
+                return Future.<Void>succeededFuture();
+            });
+        }, ex -> {
+            log.error("Error restarting (deploying new instance) required service, keeping previous one : " + name, ex);
+            return Future.failedFuture(ex);
+        });
+    }
+
     private void addAppVersion(final String moduleName,
                                final String deploymentId,
                                final String servicePath) {
@@ -328,35 +448,26 @@ public class ModuleDeployerDefault implements ModuleDeployer {
             // extracting only the desired pieces of information
             // If there is no manifest, only the version of the module has specified in entcore.json
             // will be available.
-            vertx.fileSystem().readFile(servicePath + "/META-INF" + File.separator + "MANIFEST.MF", ar -> {
+            ModuleDescriptor.get(vertx, servicePath).onComplete(ar -> {
                 String version = "n/a";
                 if(lNameVersion.length >= 3) {
                     version = lNameVersion[2];
                 }
                 final JsonObject detailedVersion = new JsonObject();
                 if (ar.succeeded()) {
-                    Scanner s = new Scanner(ar.result().toString());
-                    while (s.hasNextLine()) {
-                        final String line = s.nextLine();
-                        final String[] items = line.split(":", 2);
-                        if (items.length == 2) {
-                            final String key = items[0];
-                            if(manifestKeysForVersion.containsKey(key)) {
-                                detailedVersion.put(manifestKeysForVersion.get(key), items[1].trim());
-                            }
-                            if("Implementation-Version".equalsIgnoreCase(key)) {
-                                version = items[1];
-                            }
+                    final ModuleDescriptor descriptor = ar.result();
+                    for (final Map.Entry<String, String> entry : manifestKeysForVersion.entrySet()) {
+                        final String value = descriptor.getAttribute(entry.getKey());
+                        if (value != null) {
+                            detailedVersion.put(entry.getValue(), value);
                         }
                     }
+                    if (descriptor.getVersion() != null) {
+                        version = descriptor.getVersion();
+                    }
                 }
                 detailedVersion.put("version", version);
-                versionMap.put(moduleKey, version)
-                    .onFailure(ex -> log.error("Error when put module version", ex));
-                versionLocalMap.put(moduleKey, version);
-                detailedVersionMap.put(moduleKey, detailedVersion)
-                    .onFailure(ex -> log.error("Error when put module detailed version", ex));
-                detailedVersionLocalMap.put(moduleKey, detailedVersion);
+                versions.put(moduleKey, version, detailedVersion);
             });
         }
     }
@@ -365,10 +476,7 @@ public class ModuleDeployerDefault implements ModuleDeployer {
         final String[] lNameVersion = moduleName.split("~");
         if (lNameVersion.length >= 2) {
             final String moduleKey = lNameVersion[0] + "." + lNameVersion[1];
-            versionMap.remove(moduleKey).onFailure(ex -> log.error("Error when remove module version", ex));
-            versionLocalMap.remove(moduleKey);
-            detailedVersionMap.remove(moduleKey);
-            detailedVersionLocalMap.remove(moduleKey);
+            versions.remove(moduleKey);
             deploymentsIdMap.remove(moduleName);
         }
     }
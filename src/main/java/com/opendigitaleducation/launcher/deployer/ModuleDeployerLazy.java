@@ -0,0 +1,213 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Defers the deployment of the services flagged {@code lazy} until their address receives a first message.
+ * A placeholder consumer buffers the messages during the activation, then the messages are replayed to the
+ * real module (replies are forwarded to the original senders). HTTP services are always deployed at once : they
+ * are only registered in the service discovery (and Traefik) once deployed, so HTTP requests would never
+ * activate them.
+ */
+public class ModuleDeployerLazy implements ModuleDeployer {
+    private static final Logger log = LoggerFactory.getLogger(ModuleDeployerLazy.class);
+    static final int ACTIVATION_FAILURE_CODE = 503;
+    private final ModuleDeployer original;
+    private final Vertx vertx;
+    private final boolean cluster;
+    private final String node;
+    private final int bufferSize;
+    private final Map<String, LazyModule> modules = new ConcurrentHashMap<>();
+
+    public ModuleDeployerLazy(JsonObject config, ModuleDeployer deployer, Vertx vertx) {
+        this.original = deployer;
+        this.vertx = vertx;
+        this.cluster = vertx.isClustered();
+        this.node = config.getString("node", "");
+        this.bufferSize = config.getInteger("lazyBufferSize", 1000);
+    }
+
+    private String getAddress(JsonObject service) {
+        final String address = service.getJsonObject("config", new JsonObject()).getString("address");
+        if (address != null && cluster && !node.isEmpty()) {
+            return node + address;
+        }
+        return address;
+    }
+
+    @Override
+    public Future<Void> deploy(JsonObject service) {
+        final String name = service.getString("name");
+        final String address = getAddress(service);
+        if (!service.getBoolean("lazy", false) || name == null) {
+            return original.deploy(service);
+        }
+        if (address == null) {
+            log.warn("Lazy service without address, deploying it now : " + name);
+            return original.deploy(service);
+        }
+        if (isHttpService(service)) {
+            log.warn("Lazy HTTP service, deploying it now : " + name);
+            return original.deploy(service);
+        }
+        final LazyModule module = new LazyModule(service, address);
+        modules.put(name, module);
+        log.info("Mod will be deployed on its first message : " + name + " (" + address + ")");
+        final Promise<Void> promise = Promise.promise();
+        module.consumer.completionHandler(promise);
+        return promise.future();
+    }
+
+    @Override
+    public Future<Void> undeploy(JsonObject service) {
+        final LazyModule module = modules.remove(service.getString("name", ""));
+        if (module != null && !module.isActive()) {
+            log.info("Lazy mod has not been activated, removing its placeholder : " + service.getString("name"));
+            return module.close();
+        }
+        return original.undeploy(service);
+    }
+
+    /**
+     * @return true if the service serves HTTP requests, as registered by the service discovery
+     */
+    static boolean isHttpService(JsonObject service) {
+        final JsonObject config = service.getJsonObject("config", new JsonObject());
+        return config.getInteger("port") != null && config.getBoolean("http-service", true);
+    }
+
+    @Override
+    public Future<Void> restart(JsonObject service) {
+        final String name = service.getString("name", "");
+        final LazyModule module = modules.get(name);
+        if (module != null && module.update(service)) {
+            // will be deployed with the new configuration on its first message
+            log.info("Lazy mod has not been activated, updating its configuration : " + name);
+            return Future.succeededFuture();
+        } else if (module != null && !module.isActive()) {
+            // no more lazy
+            modules.remove(name, module);
+            return module.close().compose(v -> deploy(service));
+        }
+        return original.restart(service);
+    }
+
+    @Override
+    public Future<Void> clean(JsonObject service) {
+        return original.clean(service);
+    }
+
+    @Override
+    public Future<Void> init() {
+        return original.init();
+    }
+
+    private class LazyModule {
+        private JsonObject service;
+        private final String address;
+        private final MessageConsumer<Object> consumer;
+        private final List<Message<Object>> buffer = new ArrayList<>();
+        private boolean activating = false;
+        private boolean active = false;
+
+        LazyModule(JsonObject service, String address) {
+            this.service = service;
+            this.address = address;
+            this.consumer = vertx.eventBus().consumer(address, this::handle);
+        }
+
+        synchronized boolean isActive() {
+            return active || activating;
+        }
+
+        /**
+         * Replaces the configuration of a module not activated yet.
+         * @return false if the module is activated or if the new configuration is not lazy on the same address
+         */
+        synchronized boolean update(JsonObject newService) {
+            if (active || activating || !newService.getBoolean("lazy", false) || isHttpService(newService) ||
+                    !address.equals(getAddress(newService))) {
+                return false;
+            }
+            service = newService;
+            return true;
+        }
+
+        private synchronized void handle(Message<Object> message) {
+            if (buffer.size() >= bufferSize) {
+                message.fail(ACTIVATION_FAILURE_CODE, "Activation buffer full for " + address);
+                return;
+            }
+            buffer.add(message);
+            if (!activating) {
+                activating = true;
+                activate();
+            }
+        }
+
+        private void activate() {
+            final JsonObject service;
+            synchronized (this) {
+                service = this.service;
+            }
+            final String name = service.getString("name");
+            final long start = System.currentTimeMillis();
+            log.info("Activating lazy mod : " + name);
+            original.deploy(service).compose(v -> close()).onComplete(res -> {
+                final List<Message<Object>> messages;
+                synchronized (this) {
+                    messages = new ArrayList<>(buffer);
+                    buffer.clear();
+                    activating = false;
+                    active = res.succeeded();
+                }
+                if (res.succeeded()) {
+                    log.info(String.format("Lazy mod activated in %sms, replaying %s messages : %s",
+                            System.currentTimeMillis() - start, messages.size(), name));
+                    messages.forEach(this::replay);
+                } else {
+                    log.error("Error activating lazy mod : " + name, res.cause());
+                    for (final Message<Object> message : messages) {
+                        message.fail(ACTIVATION_FAILURE_CODE, "Activation failed for " + address);
+                    }
+                }
+            });
+        }
+
+        private void replay(Message<Object> message) {
+            final DeliveryOptions options = new DeliveryOptions().setHeaders(message.headers());
+            if (message.replyAddress() == null) {
+                vertx.eventBus().send(address, message.body(), options);
+                return;
+            }
+            vertx.eventBus().request(address, message.body(), options, ar -> {
+                if (ar.succeeded()) {
+                    message.reply(ar.result().body(), new DeliveryOptions().setHeaders(ar.result().headers()));
+                } else if (ar.cause() instanceof ReplyException) {
+                    final ReplyException e = (ReplyException) ar.cause();
+                    message.fail(e.failureCode(), e.getMessage());
+                } else {
+                    message.fail(ACTIVATION_FAILURE_CODE, ar.cause().getMessage());
+                }
+            });
+        }
+
+        Future<Void> close() {
+            return consumer.isRegistered() ? consumer.unregister() : Future.succeededFuture();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+import com.opendigitaleducation.launcher.utils.FileUtils;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+public class ModuleDeployerPlanner implements ModuleDeployer {
+    private static final Logger log = LoggerFactory.getLogger(ModuleDeployerPlanner.class);
+    private static final DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private final ModuleDeployer original;
+    private final Vertx vertx;
+    private final int parallelism;
+    private final boolean dumpTimeline;
+    private final String dumpPath;
+    private final Map<String, Future<Void>> moduleLocks = new HashMap<>();
+
+    public ModuleDeployerPlanner(JsonObject config, ModuleDeployer deployer, Vertx vertx) {
+        this.parallelism = config.getInteger("deployParallelism", Runtime.getRuntime().availableProcessors() * 2);
+        this.dumpTimeline = config.getBoolean("dumpTimeline", true);
+        this.dumpPath = FileUtils.absolutePath(System.getProperty("vertx.services.path")) + File.separator + ".."
+            + File.separator + "dump";
+        this.original = deployer;
+        this.vertx = vertx;
+    }
+
+    @Override
+    public Future<Void> deployAll(List<JsonObject> services) {
+        final NodeReadiness readiness = NodeReadiness.getInstance();
+        readiness.expect(services);
+        if (services.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        final long start = System.currentTimeMillis();
+        final DeploymentPlan plan = DeploymentPlan.of(services, DeploymentTimeline::getLastDuration);
+        log.info(String.format("Deployment plan of %s services (parallelism=%s, critical path=%s)",
+                plan.size(), parallelism, plan.getCriticalPath()));
+        return plan.execute(parallelism, this::deploy).onComplete(res -> {
+            readiness.release();
+            publishReport(services, start);
+        });
+    }
+
+    private void publishReport(List<JsonObject> services, long start) {
+        final JsonObject report = DeploymentTimeline.report(services, start);
+        log.info(String.format("Deployment plan ended in %sms (critical path=%s, %sms)", report.getLong("duration"),
+                report.getJsonArray("criticalPath"), report.getLong("criticalPathDuration")));
+        vertx.eventBus().publish(DeploymentTimeline.TIMELINE_ADDRESS, report);
+        if (dumpTimeline) {
+            final String fileName = dumpPath + File.separator + LocalDateTime.now().format(format) + "-timeline.json";
+            vertx.fileSystem().mkdirs(dumpPath)
+                .compose(v -> vertx.fileSystem().writeFile(fileName, Buffer.buffer(report.encodePrettily())))
+                .onFailure(e -> log.error("Failed to dump deployment timeline: " + fileName, e));
+        }
+    }
+
+    /**
+     * Undeploys the services concurrently, the dependents before their dependencies.
+     */
+    @Override
+    public Future<Void> undeployAll(List<JsonObject> services) {
+        if (services.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        final long start = System.currentTimeMillis();
+        return DeploymentPlan.of(services).reverse().execute(parallelism, this::undeploy).onComplete(res ->
+            log.info(String.format("Undeployed %s services in %sms (parallelism=%s)", services.size(),
+                System.currentTimeMillis() - start, parallelism)));
+    }
+
+    /**
+     * Restarts the services concurrently, the dependents before their dependencies.
+     */
+    @Override
+    public Future<Void> restartAll(List<JsonObject> services) {
+        if (services.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        final long start = System.currentTimeMillis();
+        return DeploymentPlan.of(services).reverse().execute(parallelism, this::restart).onComplete(res ->
+            log.info(String.format("Restarted %s services in %sms (parallelism=%s)", services.size(),
+                System.currentTimeMillis() - start, parallelism)));
+    }
+
+    /**
+     * Runs the action once the previous action on the same module (groupId.artifactId) is done, so that two
+     * actions never act on the same module concurrently.
+     */
+    private Future<Void> exclusive(JsonObject service, Supplier<Future<Void>> action) {
+        final String key = ServiceInfo.getServiceName(service.getString("name", ""));
+        final Promise<Void> done = Promise.promise();
+        final Future<Void> previous;
+        synchronized (moduleLocks) {
+            previous = moduleLocks.getOrDefault(key, Future.succeededFuture());
+            moduleLocks.put(key, done.future());
+        }
+        return previous.transform(v -> {
+            try {
+                return action.get();
+            } catch (Exception e) {
+                return Future.<Void>failedFuture(e);
+            }
+        }).onComplete(res -> {
+            synchronized (moduleLocks) {
+                moduleLocks.remove(key, done.future());
+            }
+            done.complete();
+        });
+    }
+
+    @Override
+    public Future<Void> deploy(JsonObject service) {
+        return exclusive(service, () -> original.deploy(service));
+    }
+
+    @Override
+    public Future<Void> undeploy(JsonObject service) {
+        return exclusive(service, () -> original.undeploy(service));
+    }
+
+    @Override
+    public Future<Void> restart(JsonObject service) {
+        return exclusive(service, () -> original.restart(service));
+    }
+
+    @Override
+    public Future<Void> clean(JsonObject service) {
+        return original.clean(service);
+    }
+
+    @Override
+    public Future<Void> init() {
+        return original.init();
+    }
+
+}
@@ -1,80 +1,166 @@
 package com.opendigitaleducation.launcher.deployer;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+
+import io.micrometer.core.instrument.MeterRegistry;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.micrometer.backends.BackendRegistries;
 
+/**
+ * Retries the failed deployments with an exponential backoff ({@code retryDelay} doubled at each attempt up to
+ * {@code retryMaxDelay}, with jitter). Permanent failures (invalid identifier or manifest, missing classes) are
+ * not retried, and the retries of a module are limited to {@code retryBudget} per {@code retryBudgetWindow}
+ * so that a broken module does not pile up retries.
+ */
 public class ModuleDeployerRetry implements ModuleDeployer {
+    static final String RETRY_METRIC = "launcher.deployment.retry";
+    static final String RETRY_EXHAUSTED_METRIC = "launcher.deployment.retry.exhausted";
+    private static final String[] PERMANENT_MESSAGES = {"Invalid identifier", "Invalid service identifier",
+        "Invalid artifact", "invalid.identifier", "Service not found (MANIFEST)", "Failed to authenticate"};
     private final int retryCount;
     private final ModuleDeployer original;
     private final Vertx vertx;
-    private final int retryDelay;
+    private final long retryDelay;
+    private final long retryMaxDelay;
+    private final int retryBudget;
+    private final long retryBudgetWindow;
+    private final Map<String, Deque<Long>> retries = new ConcurrentHashMap<>();
     private static Logger log = LoggerFactory.getLogger(ModuleDeployerRetry.class);
 
     public ModuleDeployerRetry(JsonObject config, ModuleDeployer deployer, Vertx aVertx) {
         retryCount = config.getInteger("maxRetry", 3);
-        retryDelay = config.getInteger("retryDelay", 5000);
+        retryDelay = config.getLong("retryDelay", 1000L);
+        retryMaxDelay = config.getLong("retryMaxDelay", 30000L);
+        retryBudget = config.getInteger("retryBudget", 6);
+        retryBudgetWindow = config.getLong("retryBudgetWindow", 600000L);
         this.original = deployer;
         this.vertx = aVertx;
     }
 
-    private Future<Void> timer() {
-        final Promise<Void> future = Promise.promise();
-        vertx.setTimer(retryDelay, resTime -> {
-            future.complete();
+    /**
+     * @return true if retrying cannot fix the failure (invalid identifier or manifest, class not found...)
+     */
+    static boolean isPermanent(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof ClassNotFoundException || t instanceof LinkageError || t instanceof ClassCastException) {
+                return true;
+            }
+            if (t instanceof IOException || t instanceof TimeoutException) {
+                return false;
+            }
+            final String message = t.getMessage();
+            if (message != null) {
+                for (final String permanent : PERMANENT_MESSAGES) {
+                    if (message.contains(permanent)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the delay before the next attempt : half of the exponential delay plus a random jitter
+     */
+    long delay(int attempt) {
+        final long delay = Math.min(retryMaxDelay, retryDelay * (1L << Math.min(attempt - 1, 20)));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private boolean consumeBudget(String module) {
+        final Deque<Long> times = retries.computeIfAbsent(module, k -> new ArrayDeque<>());
+        synchronized (times) {
+            final long now = System.currentTimeMillis();
+            while (!times.isEmpty() && times.peekFirst() < now - retryBudgetWindow) {
+                times.pollFirst();
+            }
+            if (times.size() >= retryBudget) {
+                return false;
+            }
+            times.addLast(now);
+            return true;
+        }
+    }
+
+    private void count(String metric, String operation, String module, String reason) {
+        final MeterRegistry registry = BackendRegistries.getDefaultNow();
+        if (registry != null) {
+            registry.counter(metric, "operation", operation, "module", module, "reason", reason).increment();
+        }
+    }
+
+    private Future<Void> retry(String operation, JsonObject service, Supplier<Future<Void>> action) {
+        final String name = ModuleDeployer.getServiceIdQuietly(service);
+        final Promise<Void> promise = Promise.promise();
+        attempt(operation, name, ServiceInfo.getServiceName(name), action, 1, promise);
+        return promise.future();
+    }
+
+    private void attempt(String operation, String name, String module, Supplier<Future<Void>> action, int attempt,
+            Promise<Void> promise) {
+        Future<Void> future;
+        try {
+            future = action.get();
+        } catch (Exception e) {
+            future = Future.failedFuture(e);
+        }
+        future.onComplete(res -> {
+            if (res.succeeded()) {
+                promise.complete();
+                return;
+            }
+            final String reason;
+            if (isPermanent(res.cause())) {
+                reason = "permanent";
+            } else if (attempt >= retryCount) {
+                reason = "attempts";
+            } else if (!consumeBudget(module)) {
+                reason = "budget";
+            } else {
+                final long delay = delay(attempt);
+                log.error(String.format("Failed to %s service %s retrying in %sms (%s/%s) : %s", operation, name,
+                        delay, attempt + 1, retryCount, res.cause().getMessage()));
+                count(RETRY_METRIC, operation, module, "transient");
+                vertx.setTimer(delay, id -> attempt(operation, name, module, action, attempt + 1, promise));
+                return;
+            }
+            if (retryCount > 1) {
+                log.error(String.format("Failed to %s service %s after %s attempts, not retrying (%s)", operation,
+                        name, attempt, reason));
+                count(RETRY_EXHAUSTED_METRIC, operation, module, reason);
+            }
+            promise.fail(res.cause());
         });
-        return (Future) Promise.promise().future();
     }
 
     @Override
     public Future<Void> deploy(JsonObject service) {
-        Future<Void> future = original.deploy(service);
-        for (int i = 2; i <= retryCount; i++) {
-            final String count = i + "";
-            future = future.recover(res -> {
-                return timer().compose(r -> {
-                    log.error(String.format("Failed to deploy service %s retrying (%s/%s) ",
-                            ModuleDeployer.getServiceIdQuietly(service), count, retryCount + ""));
-                    return original.deploy(service);
-                });
-            });
-        }
-        return future;
+        return retry("deploy", service, () -> original.deploy(service));
     }
 
     @Override
     public Future<Void> undeploy(JsonObject service) {
-        Future<Void> future = original.undeploy(service);
-        for (int i = 2; i <= retryCount; i++) {
-            final String count = i + "";
-            future = future.recover(res -> {
-                return timer().compose(r -> {
-                    log.error(String.format("Failed to undeploy service %s retrying (%s/%s) ",
-                            ModuleDeployer.getServiceIdQuietly(service), count, retryCount + ""));
-                    return original.undeploy(service);
-                });
-            });
-        }
-        return future;
+        return retry("undeploy", service, () -> original.undeploy(service));
     }
 
     @Override
     public Future<Void> restart(JsonObject service) {
-        Future<Void> future = original.restart(service);
-        for (int i = 2; i <= retryCount; i++) {
-            final String count = i + "";
-            future = future.recover(res -> {
-                return timer().compose(r -> {
-                    log.error(String.format("Failed to restart service %s retrying (%s/%s) ",
-                            ModuleDeployer.getServiceIdQuietly(service), count + "", retryCount + ""));
-                    return original.restart(service);
-                });
-            });
-        }
-        return future;
+        return retry("restart", service, () -> original.restart(service));
     }
 
     @Override
@@ -0,0 +1,103 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.file.FileProps;
+
+/**
+ * Main attributes of the {@code META-INF/MANIFEST.MF} of an extracted module. Descriptors are cached by service
+ * path : the manifest is parsed once per extraction (a manifest whose modification time and size did not change
+ * is not parsed again) and the deployments, restarts and version registry of the module reuse it without I/O.
+ */
+public class ModuleDescriptor {
+    private static final Map<String, ModuleDescriptor> cache = new ConcurrentHashMap<>();
+
+    private final Attributes attributes;
+    private final long lastModified;
+    private final long size;
+
+    private ModuleDescriptor(Attributes attributes, long lastModified, long size) {
+        this.attributes = attributes;
+        this.lastModified = lastModified;
+        this.size = size;
+    }
+
+    private static String key(String servicePath) {
+        return Paths.get(servicePath).toAbsolutePath().normalize().toString();
+    }
+
+    private static String manifestPath(String servicePath) {
+        return key(servicePath) + File.separator + "META-INF" + File.separator + "MANIFEST.MF";
+    }
+
+    /**
+     * @return the cached descriptor of the module, or the descriptor read from its manifest
+     */
+    public static Future<ModuleDescriptor> get(Vertx vertx, String servicePath) {
+        final ModuleDescriptor descriptor = cache.get(key(servicePath));
+        if (descriptor != null) {
+            return Future.succeededFuture(descriptor);
+        }
+        return refresh(vertx, servicePath);
+    }
+
+    /**
+     * Reads the manifest of the module again if its modification time or size changed (e.g. after an extraction).
+     */
+    public static Future<ModuleDescriptor> refresh(Vertx vertx, String servicePath) {
+        final String key = key(servicePath);
+        final String manifest = manifestPath(servicePath);
+        return vertx.fileSystem().props(manifest).compose(props -> {
+            final ModuleDescriptor cached = cache.get(key);
+            if (cached != null && cached.lastModified == props.lastModifiedTime() && cached.size == props.size()) {
+                return Future.succeededFuture(cached);
+            }
+            return vertx.fileSystem().readFile(manifest).compose(buffer -> {
+                try {
+                    final ModuleDescriptor descriptor = parse(buffer.getBytes(), props);
+                    cache.put(key, descriptor);
+                    return Future.succeededFuture(descriptor);
+                } catch (IOException e) {
+                    return Future.failedFuture(e);
+                }
+            });
+        });
+    }
+
+    static ModuleDescriptor parse(byte[] manifest, FileProps props) throws IOException {
+        final Manifest parsed = new Manifest(new ByteArrayInputStream(manifest));
+        return new ModuleDescriptor(parsed.getMainAttributes(), props == null ? 0 : props.lastModifiedTime(),
+                props == null ? manifest.length : props.size());
+    }
+
+    /**
+     * Forgets the descriptor of a module whose directory is deleted.
+     */
+    public static void invalidate(String servicePath) {
+        cache.remove(key(servicePath));
+    }
+
+    public String getAttribute(String name) {
+        return attributes.getValue(name);
+    }
+
+    /**
+     * @return the {@code Main-Verticle} attribute (e.g. service:org.entcore~auth~1.0)
+     */
+    public String getMainVerticle() {
+        return attributes.getValue("Main-Verticle");
+    }
+
+    public String getVersion() {
+        return attributes.getValue("Implementation-Version");
+    }
+}
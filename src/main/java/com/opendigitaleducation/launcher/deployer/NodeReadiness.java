@@ -0,0 +1,138 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import static com.opendigitaleducation.launcher.deployer.DeploymentPlan.DEFAULT_PRIORITY;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Readiness of the node, when the gating is enabled ({@code readinessGating}) : the node is ready once every
+ * service of the first deployment plan whose readiness tier ({@code readinessTier}, defaults to its
+ * {@code priority}) is lower or equal to the {@code readinessTier} of the launcher is deployed, once the plan
+ * ended (failed services do not hold the node forever) or after {@code readinessTimeout} ms.
+ * The registration of the HTTP services in Traefik is held until the node is ready.
+ */
+public class NodeReadiness {
+    private static final Logger log = LoggerFactory.getLogger(NodeReadiness.class);
+    private static NodeReadiness instance = new NodeReadiness(false, Double.MAX_VALUE);
+
+    private final boolean enabled;
+    private final double tier;
+    private final Promise<Void> ready = Promise.promise();
+    private final Set<String> pending = new TreeSet<>();
+    private final long start = System.currentTimeMillis();
+    private boolean expected = false;
+
+    private NodeReadiness(boolean enabled, double tier) {
+        this.enabled = enabled;
+        this.tier = tier;
+        if (!enabled) {
+            ready.complete();
+        }
+    }
+
+    /**
+     * @param vertx used to release the node after the readiness timeout, none if null
+     */
+    public static synchronized NodeReadiness init(Vertx vertx, JsonObject config) {
+        final NodeReadiness readiness = new NodeReadiness(config.getBoolean("readinessGating", false),
+                config.getDouble("readinessTier", Double.MAX_VALUE));
+        final long timeout = config.getLong("readinessTimeout", 300000L);
+        if (vertx != null && timeout > 0 && !readiness.isReady()) {
+            final long timerId = vertx.setTimer(timeout, id -> readiness.timeout(timeout));
+            readiness.ready().onComplete(v -> vertx.cancelTimer(timerId));
+        }
+        instance = readiness;
+        return instance;
+    }
+
+    public static synchronized NodeReadiness getInstance() {
+        return instance;
+    }
+
+    static double getTier(JsonObject service) {
+        return service.getDouble("readinessTier", service.getDouble("priority", DEFAULT_PRIORITY));
+    }
+
+    /**
+     * Registers the services required for the node to be ready. Only the first deployment plan is considered.
+     */
+    public synchronized void expect(List<JsonObject> services) {
+        if (expected || isReady()) {
+            return;
+        }
+        expected = true;
+        for (final JsonObject service : services) {
+            final String name = service.getString("name");
+            if (name != null && !service.getBoolean("lazy", false) && getTier(service) <= tier) {
+                pending.add(name);
+            }
+        }
+        log.info(String.format("Node will be ready once %s services are deployed (tier <= %s)", pending.size(), tier));
+        checkReady();
+    }
+
+    public synchronized void deployed(String name) {
+        if (pending.remove(name)) {
+            checkReady();
+        }
+    }
+
+    /**
+     * Called when the deployment plan ended : the node is ready even if some required services failed.
+     */
+    public synchronized void release() {
+        if (!expected || isReady()) {
+            return;
+        }
+        if (!pending.isEmpty()) {
+            log.warn("Deployment plan ended, node ready without services : " + pending);
+        }
+        pending.clear();
+        checkReady();
+    }
+
+    private synchronized void timeout(long timeout) {
+        if (isReady()) {
+            return;
+        }
+        log.warn(String.format("Node not ready after %sms, ready without services : %s", timeout,
+                expected ? pending : "first deployment not started"));
+        pending.clear();
+        checkReady();
+    }
+
+    private void checkReady() {
+        if (pending.isEmpty() && ready.tryComplete()) {
+            log.info(String.format("Node ready in %sms", System.currentTimeMillis() - start));
+        }
+    }
+
+    public boolean isReady() {
+        return ready.future().isComplete();
+    }
+
+    /**
+     * @return a future completed when the node is ready
+     */
+    public Future<Void> ready() {
+        return ready.future();
+    }
+
+    public synchronized JsonObject toJson() {
+        return new JsonObject()
+            .put("ready", isReady())
+            .put("tier", tier)
+            .put("pending", new JsonArray(new ArrayList<>(pending)));
+    }
+}
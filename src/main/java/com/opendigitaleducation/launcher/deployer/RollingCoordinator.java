@@ -0,0 +1,179 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import com.opendigitaleducation.launcher.discovery.ServiceDiscovery;
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.impl.VertxInternal;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.Lock;
+
+/**
+ * Caps the number of nodes of the cluster redeploying the same module at once ({@code rollingMaxParallel}).
+ * A node takes one of the slots of the module (cluster wide locks) before redeploying it and releases it
+ * once the instance of this node is registered again in the service discovery (when it was registered before
+ * the redeployment) and the settle time ({@code rollingSettleTime}) elapsed, so that the next nodes wait for the
+ * previous batch to be healthy. If the redeployment fails, or the instance is not registered within
+ * {@code rollingTimeout}, the slot is kept until the next successful redeployment of the module on this node so
+ * that a broken version is not rolled to the whole cluster. A node that could not get a slot within
+ * {@code rollingTimeout} redeploys the module anyway.
+ */
+public class RollingCoordinator {
+    private static final Logger log = LoggerFactory.getLogger(RollingCoordinator.class);
+    private static final String PREFIX = "rolling.";
+    private static final long SLOT_TIMEOUT = 1000L;
+    private static final long REGISTRATION_CHECK_INTERVAL = 1000L;
+
+    private final Vertx vertx;
+    private final ServiceDiscovery serviceDiscovery;
+    private final String nodeId;
+    private final int maxParallel;
+    private final long timeout;
+    private final long settleTime;
+    private final Map<String, Lock> kept = new ConcurrentHashMap<>();
+
+    public RollingCoordinator(Vertx vertx, JsonObject config) {
+        this(vertx, ServiceDiscovery.create(vertx), vertx.isClustered() ?
+            ((VertxInternal) vertx).getClusterManager().getNodeId() : null, config);
+    }
+
+    /**
+     * @param nodeId identifier of this node in the cluster, null if not clustered
+     */
+    RollingCoordinator(Vertx vertx, ServiceDiscovery serviceDiscovery, String nodeId, JsonObject config) {
+        this.vertx = vertx;
+        this.serviceDiscovery = serviceDiscovery;
+        this.nodeId = nodeId;
+        this.maxParallel = config.getInteger("rollingMaxParallel", 0);
+        this.timeout = config.getLong("rollingTimeout", 600000L);
+        this.settleTime = config.getLong("rollingSettleTime", 5000L);
+    }
+
+    public boolean isEnabled() {
+        return maxParallel > 0 && nodeId != null;
+    }
+
+    /**
+     * Runs the redeployment of a module once a slot is available for it.
+     * @param moduleKey key of the module (groupId.artifactId)
+     */
+    public <T> Future<T> run(String moduleKey, Supplier<Future<T>> task) {
+        if (!isEnabled()) {
+            return task.get();
+        }
+        final long start = System.currentTimeMillis();
+        final Lock previous = kept.remove(moduleKey);
+        final Future<Lock> slot = previous != null ? Future.succeededFuture(previous) :
+            acquire(moduleKey, ThreadLocalRandom.current().nextInt(maxParallel), start + timeout);
+        return slot.compose(lock -> {
+            log.info(String.format("Rolling slot acquired in %sms for : %s", System.currentTimeMillis() - start, moduleKey));
+            return vertx.sharedData().getCounter(PREFIX + moduleKey)
+                .compose(counter -> counter.incrementAndGet().map(count -> {
+                    log.info(String.format("Redeploying %s (%s/%s nodes in progress)", moduleKey, count, maxParallel));
+                    return counter;
+                })).otherwiseEmpty()
+                .compose(counter -> isRegistered(moduleKey).otherwise(false).compose(registered -> {
+                    Future<T> future;
+                    try {
+                        future = task.get();
+                    } catch (Exception e) {
+                        future = Future.failedFuture(e);
+                    }
+                    final long deadline = System.currentTimeMillis() + timeout;
+                    return future.compose(res -> (Boolean.TRUE.equals(registered) ? registration(moduleKey, deadline) :
+                        Future.<Void>succeededFuture()).compose(v -> settle()).map(res)).transform(res -> {
+                        if (counter != null) {
+                            counter.decrementAndGet();
+                        }
+                        if (res.succeeded()) {
+                            if (lock != null) {
+                                lock.release();
+                            }
+                            return Future.succeededFuture(res.result());
+                        }
+                        if (lock != null) {
+                            log.warn("Redeployment of " + moduleKey + " failed, keeping its rolling slot : " +
+                                res.cause().getMessage());
+                            kept.put(moduleKey, lock);
+                        }
+                        return Future.failedFuture(res.cause());
+                    });
+                }));
+        });
+    }
+
+    /**
+     * Tries the slots of the module one after the other until one of them is free or the deadline is passed.
+     * @return the lock of the slot or null if the deadline is passed
+     */
+    private Future<Lock> acquire(String moduleKey, int slot, long deadline) {
+        if (System.currentTimeMillis() >= deadline) {
+            log.warn("No rolling slot available in time, redeploying anyway : " + moduleKey);
+            return Future.succeededFuture();
+        }
+        return vertx.sharedData().getLockWithTimeout(PREFIX + moduleKey + "." + slot, SLOT_TIMEOUT)
+            .recover(e -> acquire(moduleKey, (slot + 1) % maxParallel, deadline));
+    }
+
+    /**
+     * @return true if an instance of the module running on this node is registered in the service discovery,
+     * null if the service discovery does not list the instances
+     */
+    private Future<Boolean> isRegistered(String moduleKey) {
+        return serviceDiscovery.getServiceInfos(moduleKey).map(infos -> {
+            if (infos == null) {
+                return null;
+            }
+            for (final ServiceInfo info : infos) {
+                if (nodeId.equals(info.getNodeId())) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Waits for the instance of this node to be registered in the service discovery.
+     * @return a future failed if it is not registered before the deadline
+     */
+    private Future<Void> registration(String moduleKey, long deadline) {
+        return isRegistered(moduleKey).otherwise(false).compose(registered -> {
+            if (registered == null || registered) {
+                return Future.succeededFuture();
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                return Future.failedFuture("Instance of " + moduleKey + " not registered in the service discovery");
+            }
+            final Promise<Void> promise = Promise.promise();
+            vertx.setTimer(REGISTRATION_CHECK_INTERVAL, id -> registration(moduleKey, deadline).onComplete(promise));
+            return promise.future();
+        });
+    }
+
+    private Future<Void> settle() {
+        final Promise<Void> promise = Promise.promise();
+        if (settleTime > 0) {
+            vertx.setTimer(settleTime, id -> promise.complete());
+        } else {
+            promise.complete();
+        }
+        return promise.future();
+    }
+
+    /**
+     * @return true if the slot of the module is kept after a failed redeployment
+     */
+    boolean isSlotKept(String moduleKey) {
+        return kept.containsKey(moduleKey);
+    }
+}
@@ -0,0 +1,166 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.shareddata.LocalMap;
+
+/**
+ * Versions of the deployed modules ({@code versions} and {@code detailedVersions} maps). The local maps are
+ * updated synchronously and the writes to the cluster maps are batched : the updates received within
+ * {@code versionFlushDelay} are coalesced per module (e.g. the remove and put of a restart become a single
+ * put, the put and remove of a failed deployment a single remove) and flushed together. A failed write is
+ * retried by a later flush unless the module was updated since.
+ */
+public class VersionRegistry {
+    private static final Logger log = LoggerFactory.getLogger(VersionRegistry.class);
+    private static final long RETRY_DELAY = 1000L;
+    private final Vertx vertx;
+    private final long flushDelay;
+    private final BatchedMap<String> versions;
+    private final BatchedMap<JsonObject> detailedVersions;
+    private boolean flushScheduled = false;
+
+    public VersionRegistry(Vertx vertx, long flushDelay) {
+        this.vertx = vertx;
+        this.flushDelay = flushDelay;
+        this.versions = new BatchedMap<>("versions", vertx.sharedData().getLocalMap("versions"));
+        this.detailedVersions = new BatchedMap<>("detailedVersions", vertx.sharedData().getLocalMap("detailedVersions"));
+    }
+
+    /**
+     * Sets the cluster maps : the updates received before are flushed.
+     */
+    public Future<Void> init(AsyncMap<String, String> versionMap, AsyncMap<String, JsonObject> detailedVersionMap) {
+        synchronized (this) {
+            versions.cluster = versionMap;
+            detailedVersions.cluster = detailedVersionMap;
+        }
+        return flush();
+    }
+
+    public void put(String moduleKey, String version, JsonObject detailedVersion) {
+        versions.put(moduleKey, version);
+        detailedVersions.put(moduleKey, detailedVersion);
+        scheduleFlush();
+    }
+
+    public void remove(String moduleKey) {
+        versions.remove(moduleKey);
+        detailedVersions.remove(moduleKey);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        scheduleFlush(flushDelay);
+    }
+
+    private synchronized void scheduleFlush(long delay) {
+        if (flushScheduled) {
+            return;
+        }
+        flushScheduled = true;
+        if (delay > 0) {
+            vertx.setTimer(delay, id -> flush());
+        } else {
+            vertx.runOnContext(v -> flush());
+        }
+    }
+
+    /**
+     * Writes the pending updates to the cluster maps.
+     */
+    public Future<Void> flush() {
+        synchronized (this) {
+            flushScheduled = false;
+        }
+        final List<Future<Void>> writes = new ArrayList<>();
+        writes.addAll(versions.flush());
+        writes.addAll(detailedVersions.flush());
+        if (writes.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        final long start = System.currentTimeMillis();
+        return Future.join(writes).onComplete(res -> {
+            if (res.succeeded()) {
+                log.debug(String.format("Flushed %s version writes in %sms", writes.size(), System.currentTimeMillis() - start));
+            } else {
+                log.error("Error when flush module versions", res.cause());
+            }
+        }).mapEmpty();
+    }
+
+    private class BatchedMap<V> {
+        private final String name;
+        private final LocalMap<String, V> local;
+        private final Map<String, V> pending = new LinkedHashMap<>();
+        private AsyncMap<String, V> cluster;
+
+        BatchedMap(String name, LocalMap<String, V> local) {
+            this.name = name;
+            this.local = local;
+        }
+
+        void put(String key, V value) {
+            local.put(key, value);
+            synchronized (VersionRegistry.this) {
+                pending.put(key, value);
+            }
+        }
+
+        void remove(String key) {
+            local.remove(key);
+            synchronized (VersionRegistry.this) {
+                // a null value is a removal
+                pending.put(key, null);
+            }
+        }
+
+        List<Future<Void>> flush() {
+            final Map<String, V> batch;
+            final AsyncMap<String, V> target;
+            synchronized (VersionRegistry.this) {
+                if (cluster == null || pending.isEmpty()) {
+                    return new ArrayList<>();
+                }
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+                target = cluster;
+            }
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (final Map.Entry<String, V> entry : batch.entrySet()) {
+                final String key = entry.getKey();
+                final V value = entry.getValue();
+                final Future<Void> future = value == null ? target.remove(key).mapEmpty() : target.put(key, value);
+                futures.add(future.onFailure(ex -> {
+                    log.error("Error when write module version in " + name + " : " + key, ex);
+                    retry(key, value);
+                }));
+            }
+            return futures;
+        }
+
+        /**
+         * Queues again a failed write unless a newer update of the module is pending or has been flushed, i.e. the
+         * local map (updated synchronously) no longer holds the written value.
+         */
+        private void retry(String key, V value) {
+            synchronized (VersionRegistry.this) {
+                final V current = local.get(key);
+                if (pending.containsKey(key) || (value == null ? current != null : !value.equals(current))) {
+                    return;
+                }
+                pending.put(key, value);
+            }
+            scheduleFlush(flushDelay > 0 ? flushDelay : RETRY_DELAY);
+        }
+    }
+}
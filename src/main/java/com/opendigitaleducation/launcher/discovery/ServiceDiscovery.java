@@ -19,6 +19,11 @@ public interface ServiceDiscovery {
 
     Future<ServiceInfo> serviceRegistration(String moduleName, JsonObject config);
 
+    /**
+     * Removes the instance of the module running on this node, so that it stops receiving new requests.
+     */
+    Future<Void> serviceUnregistration(String moduleName);
+
     Future<List<ServiceInfo>> getServiceInfos(String service);
 
     Future<Map<String, List<ServiceInfo>>> getServicesInfos(List<String> services);
@@ -3,6 +3,7 @@ package com.opendigitaleducation.launcher.discovery;
 import static java.lang.String.format;
 
 import java.io.Serializable;
+import java.util.Objects;
 
 import io.vertx.core.json.JsonObject;
 
@@ -121,4 +122,28 @@ public class ServiceInfo implements Serializable {
     public boolean isSsl() {
         return ssl;
     }
+
+    /**
+     * Instances are compared by value : the conditional updates of the cluster map of services compare the
+     * deserialized lists of instances.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ServiceInfo that = (ServiceInfo) o;
+        return httpService == that.httpService && ssl == that.ssl && Objects.equals(nodeId, that.nodeId) &&
+            Objects.equals(name, that.name) && Objects.equals(router, that.router) && Objects.equals(ip, that.ip) &&
+            Objects.equals(pathPrefix, that.pathPrefix) && Objects.equals(port, that.port) &&
+            Objects.equals(url, that.url) && Objects.equals(healthcheck, that.healthcheck);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nodeId, name, router, ip, pathPrefix, port, url, httpService, healthcheck, ssl);
+    }
 }
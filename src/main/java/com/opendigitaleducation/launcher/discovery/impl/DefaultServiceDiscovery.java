@@ -67,6 +67,44 @@ public class DefaultServiceDiscovery implements ServiceDiscovery {
                 });
     }
 
+    @Override
+    public Future<Void> serviceUnregistration(String moduleName) {
+        final String name = ServiceInfo.getServiceName(moduleName);
+        final String nodeId = zookeeperClusterManager.getNodeId();
+        return vertx.sharedData().<String, List<ServiceInfo>>getAsyncMap("services")
+                .compose(services -> removeServiceId(services, name, nodeId, 0));
+    }
+
+    /**
+     * Removes the instances of a node from the list of a service. The list is only replaced (or removed) if
+     * no other node modified it in the meantime, the update is retried otherwise.
+     */
+    static Future<Void> removeServiceId(AsyncMap<String, List<ServiceInfo>> services, String name, String nodeId,
+            int retry) {
+        return services.get(name).compose(infos -> {
+            if (infos == null) {
+                return Future.succeededFuture();
+            }
+            final List<ServiceInfo> newList = infos.stream().filter(x -> !nodeId.equals(x.getNodeId()))
+                    .collect(Collectors.toList());
+            if (newList.size() == infos.size()) {
+                return Future.succeededFuture();
+            }
+            final Future<Boolean> updated = newList.isEmpty() ?
+                    services.removeIfPresent(name, infos) : services.replaceIfPresent(name, infos, newList);
+            return updated.compose(u -> {
+                if (u) {
+                    return Future.succeededFuture();
+                } else if (retry >= RETRY_UPDATE_SERVICE) {
+                    return Future.failedFuture("Unable to unregister " + name + " after " + retry + " retries");
+                }
+                final int r = retry + 1;
+                log.warn("Retry update services async map : " + r);
+                return removeServiceId(services, name, nodeId, r);
+            });
+        });
+    }
+
     private Future<ServiceInfo> appendAndFilterServiceIds(AsyncMap<String, List<ServiceInfo>> services,
             ServiceInfo serviceInfo, List<ServiceInfo> oldList, int retry) {
         final List<ServiceInfo> newList = oldList.stream().filter(x ->
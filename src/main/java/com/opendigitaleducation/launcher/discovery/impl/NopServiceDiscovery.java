@@ -16,6 +16,11 @@ public class NopServiceDiscovery implements ServiceDiscovery {
         return Future.succeededFuture(null);
     }
 
+    @Override
+    public Future<Void> serviceUnregistration(String moduleName) {
+        return Future.succeededFuture();
+    }
+
     @Override
     public Future<Map<String, List<ServiceInfo>>> getServicesInfos(List<String> services) {
         return Future.succeededFuture(null);
@@ -10,8 +10,10 @@ import java.util.List;
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.state.ConnectionState;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException.NoNodeException;
 import org.apache.zookeeper.KeeperException.NodeExistsException;
 
+import com.opendigitaleducation.launcher.deployer.NodeReadiness;
 import com.opendigitaleducation.launcher.discovery.ServiceInfo;
 
 import io.vertx.core.Future;
@@ -23,15 +25,27 @@ public class TraefikServiceDiscovery extends DefaultServiceDiscovery {
 
     private final List<ServiceInfo> registeredServices = Collections.synchronizedList(new ArrayList<>());
     private volatile boolean sessionLost = false;
+    private final NodeReadiness readiness;
 
     public TraefikServiceDiscovery(Vertx vertx) {
         super(vertx);
+        readiness = NodeReadiness.getInstance();
+        readiness.ready().onSuccess(v -> {
+            final List<ServiceInfo> held;
+            synchronized (registeredServices) {
+                held = new ArrayList<>(registeredServices);
+            }
+            for (final ServiceInfo serviceInfo : held) {
+                traefikServiceRegistration(serviceInfo)
+                    .onFailure(e -> log.error("Failed to register held Traefik nodes for: " + serviceInfo.getName(), e));
+            }
+        });
         zookeeperClusterManager.getCuratorFramework().getConnectionStateListenable().addListener(
             (client, newState) -> {
                 if (newState == ConnectionState.LOST) {
                     log.warn("Zookeeper session lost, ephemeral Traefik nodes will be recreated on reconnection");
                     sessionLost = true;
-                } else if (newState == ConnectionState.RECONNECTED && sessionLost) {
+                } else if (newState == ConnectionState.RECONNECTED && sessionLost && readiness.isReady()) {
                     log.info("Zookeeper reconnected after session loss, recreating ephemeral Traefik nodes");
                     sessionLost = false;
                     for (final ServiceInfo serviceInfo : new ArrayList<>(registeredServices)) {
@@ -48,8 +62,14 @@ public class TraefikServiceDiscovery extends DefaultServiceDiscovery {
     public Future<ServiceInfo> serviceRegistration(String name, JsonObject config) {
         return super.serviceRegistration(name, config).compose(infos -> {
             if (infos.isHttpService()) {
-                registeredServices.removeIf(s -> s.getName().equals(infos.getName()));
-                registeredServices.add(infos);
+                synchronized (registeredServices) {
+                    registeredServices.removeIf(s -> s.getName().equals(infos.getName()));
+                    registeredServices.add(infos);
+                    if (!readiness.isReady()) {
+                        log.info("Traefik registration held until the node is ready : " + infos.getName());
+                        return Future.succeededFuture(infos);
+                    }
+                }
                 return traefikServiceRegistration(infos);
             } else {
                 return Future.succeededFuture(infos);
@@ -57,14 +77,89 @@ public class TraefikServiceDiscovery extends DefaultServiceDiscovery {
         });
     }
 
+    @Override
+    public Future<Void> serviceUnregistration(String moduleName) {
+        final String name = ServiceInfo.getServiceName(moduleName);
+        final List<ServiceInfo> infos = new ArrayList<>();
+        synchronized (registeredServices) {
+            registeredServices.removeIf(s -> {
+                if (s.getName().equals(name)) {
+                    infos.add(s);
+                    return true;
+                }
+                return false;
+            });
+        }
+        return super.serviceUnregistration(moduleName).compose(v -> {
+            for (final ServiceInfo serviceInfo : infos) {
+                traefikServiceUnregistration(serviceInfo);
+                if ("org.entcore.directory".equals(serviceInfo.getName())) {
+                    traefikServiceUnregistration(new ServiceInfo(
+                        "org.entcore~userbook~version",
+                        serviceInfo.getRouter().replaceAll("directory", "userbook"),
+                        serviceInfo.getIp(), serviceInfo.getPort(), "/userbook",
+                        serviceInfo.getNodeId(), serviceInfo.isHttpService(), serviceInfo.isSsl(), serviceInfo.getHealthcheck()));
+                }
+            }
+            return Future.succeededFuture();
+        });
+    }
+
+    /**
+     * Deletes the ephemeral nodes created for the instance of this node : Traefik stops routing to it.
+     */
+    private void traefikServiceUnregistration(ServiceInfo serviceInfo) {
+        final CuratorFramework curatorFramework = zookeeperClusterManager.getCuratorFramework();
+        final String serversPath = format("/traefik/http/services/%s/loadbalancer/servers", serviceInfo.getName());
+        try {
+            for (final String server : curatorFramework.getChildren().forPath(serversPath)) {
+                final String urlPath = serversPath + "/" + server + "/url";
+                try {
+                    final byte[] url = curatorFramework.getData().forPath(urlPath);
+                    if (serviceInfo.getUrl().equals(new String(url, StandardCharsets.UTF_8))) {
+                        curatorFramework.delete().forPath(urlPath);
+                    }
+                } catch (NoNodeException e) {
+                    log.debug("Load balancer server already removed", e);
+                }
+            }
+            curatorFramework.delete().forPath(
+                    format("/traefik/%s-%s", serviceInfo.getRouter(), zookeeperClusterManager.getNodeId()));
+        } catch (NoNodeException e) {
+            log.debug("Traefik nodes already removed", e);
+        } catch (Exception e) {
+            log.error("Error when unregistering Traefik nodes of : " + serviceInfo.getName(), e);
+        }
+    }
+
+    private boolean isServerRegistered(CuratorFramework curatorFramework, ServiceInfo serviceInfo) throws Exception {
+        final String serversPath = format("/traefik/http/services/%s/loadbalancer/servers", serviceInfo.getName());
+        try {
+            for (final String server : curatorFramework.getChildren().forPath(serversPath)) {
+                try {
+                    final byte[] url = curatorFramework.getData().forPath(serversPath + "/" + server + "/url");
+                    if (serviceInfo.getUrl().equals(new String(url, StandardCharsets.UTF_8))) {
+                        return true;
+                    }
+                } catch (NoNodeException e) {
+                    log.debug("Load balancer server removed", e);
+                }
+            }
+        } catch (NoNodeException e) {
+            log.debug("No load balancer server registered", e);
+        }
+        return false;
+    }
+
     private Future<ServiceInfo> traefikServiceRegistration(ServiceInfo serviceInfo) {
         Promise<ServiceInfo> promise = Promise.promise();
         try {
             final CuratorFramework curatorFramework = zookeeperClusterManager.getCuratorFramework();
             final byte[] instanceUrl = serviceInfo.getUrl().getBytes(StandardCharsets.UTF_8);
 
+            // registering the instance again (e.g. blue/green restart) must not add another server
             int i = 0;
-            boolean instanceLbCreated = false;
+            boolean instanceLbCreated = isServerRegistered(curatorFramework, serviceInfo);
             while (!instanceLbCreated) {
                 try {
                     final String path = format("/traefik/http/services/%s/loadbalancer/servers/%d/url",
@@ -107,9 +202,13 @@ public class TraefikServiceDiscovery extends DefaultServiceDiscovery {
             } catch (NodeExistsException e) {
                 log.debug("Service path already created", e);
             }
-            curatorFramework.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL)
-                    .forPath(format("/traefik/%s-%s", serviceInfo.getRouter(), zookeeperClusterManager.getNodeId()),
-                    instanceUrl);
+            try {
+                curatorFramework.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL)
+                        .forPath(format("/traefik/%s-%s", serviceInfo.getRouter(), zookeeperClusterManager.getNodeId()),
+                        instanceUrl);
+            } catch (NodeExistsException e) {
+                log.debug("Router node of this instance already created", e);
+            }
 
             // Userbook hack
             if ("org.entcore.directory".equals(serviceInfo.getName())) {
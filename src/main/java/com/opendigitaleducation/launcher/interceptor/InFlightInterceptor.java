@@ -0,0 +1,159 @@
+package com.opendigitaleducation.launcher.interceptor;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryContext;
+import io.vertx.core.eventbus.Message;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interceptor that tracks the requests delivered to the addresses of the deployed modules (inbound) which
+ * have not been replied yet (outbound), so that a module can be drained before being undeployed. The new
+ * requests sent to a draining module are failed with {@link #DRAINING_FAILURE_CODE} instead of being delivered.
+ *
+ * @param <T>
+ */
+public class InFlightInterceptor<T> implements Handler<DeliveryContext<T>> {
+    public static final int DRAINING_FAILURE_CODE = 503;
+
+    private static final Map<String, String> addresses = new ConcurrentHashMap<>();
+    private static final Map<String, Map<String, Long>> inFlight = new ConcurrentHashMap<>();
+    private static final Map<String, String> addressByReplyAddress = new ConcurrentHashMap<>();
+    private static final Set<String> draining = ConcurrentHashMap.newKeySet();
+    private final boolean inbound;
+
+    /**
+     * @param inbound true to register requests (inbound interceptor), false to register replies (outbound)
+     */
+    public InFlightInterceptor(boolean inbound) {
+        this.inbound = inbound;
+    }
+
+    /**
+     * Tracks the requests sent to the address of a module.
+     */
+    public static void track(String moduleName, String address) {
+        if (address != null) {
+            addresses.put(moduleName, address);
+            inFlight.computeIfAbsent(address, k -> new ConcurrentHashMap<>());
+        }
+    }
+
+    public static void untrack(String moduleName) {
+        final String address = addresses.remove(moduleName);
+        if (address != null && !addresses.containsValue(address)) {
+            draining.remove(address);
+            final Map<String, Long> requests = inFlight.remove(address);
+            if (requests != null) {
+                requests.keySet().forEach(addressByReplyAddress::remove);
+            }
+        }
+    }
+
+    /**
+     * @return number of requests sent to the module and not replied yet
+     */
+    public static int getInFlight(String moduleName) {
+        final String address = addresses.get(moduleName);
+        final Map<String, Long> requests = address == null ? null : inFlight.get(address);
+        return requests == null ? 0 : requests.size();
+    }
+
+    /**
+     * Stops delivering the new requests sent to the module : they are failed until the module is untracked.
+     */
+    public static void drain(String moduleName) {
+        final String address = addresses.get(moduleName);
+        if (address != null) {
+            draining.add(address);
+        }
+    }
+
+    public static boolean isDraining(String moduleName) {
+        final String address = addresses.get(moduleName);
+        return address != null && draining.contains(address);
+    }
+
+    /**
+     * Waits until every request sent to the module before the call has been replied, or until the timeout.
+     * Requests older than the timeout (e.g. never replied) are ignored.
+     * @return number of these requests still in flight
+     */
+    public static Future<Integer> awaitIdle(Vertx vertx, String moduleName, long timeout) {
+        final Promise<Integer> promise = Promise.promise();
+        final long deadline = System.currentTimeMillis() + timeout;
+        final String address = addresses.get(moduleName);
+        final Map<String, Long> requests = address == null ? null : inFlight.get(address);
+        final Set<String> tracked = requests == null ? new HashSet<>() : new HashSet<>(requests.keySet());
+        check(vertx, address, tracked, deadline, timeout, promise);
+        return promise.future();
+    }
+
+    private static void check(Vertx vertx, String address, Set<String> tracked, long deadline, long timeout,
+            Promise<Integer> promise) {
+        final Map<String, Long> requests = address == null ? null : inFlight.get(address);
+        if (requests != null) {
+            prune(requests, timeout);
+            tracked.retainAll(requests.keySet());
+        } else {
+            tracked.clear();
+        }
+        final int pending = tracked.size();
+        if (pending == 0 || System.currentTimeMillis() >= deadline) {
+            promise.complete(pending);
+        } else {
+            vertx.setTimer(50, id -> check(vertx, address, tracked, deadline, timeout, promise));
+        }
+    }
+
+    /**
+     * Forgets the requests older than maxAge : requests whose requester timed out may never be replied.
+     */
+    public static void prune(long maxAge) {
+        for (final Map<String, Long> requests : inFlight.values()) {
+            prune(requests, maxAge);
+        }
+    }
+
+    private static void prune(Map<String, Long> requests, long maxAge) {
+        final long expired = System.currentTimeMillis() - maxAge;
+        requests.entrySet().removeIf(e -> {
+            if (e.getValue() < expired) {
+                addressByReplyAddress.remove(e.getKey());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    @Override
+    public void handle(DeliveryContext<T> event) {
+        final Message<T> message = event.message();
+        final String address = message.address();
+        if (address != null && inbound) {
+            if (message.replyAddress() != null && draining.contains(address)) {
+                message.fail(DRAINING_FAILURE_CODE, "Module is draining : " + address);
+                return;
+            }
+            final Map<String, Long> requests = inFlight.get(address);
+            if (requests != null && message.replyAddress() != null) {
+                requests.put(message.replyAddress(), System.currentTimeMillis());
+                addressByReplyAddress.put(message.replyAddress(), address);
+            }
+        } else if (address != null) {
+            // replies are sent to the reply address of the request
+            final String requestAddress = addressByReplyAddress.remove(address);
+            final Map<String, Long> pending = requestAddress == null ? null : inFlight.get(requestAddress);
+            if (pending != null) {
+                pending.remove(address);
+            }
+        }
+        event.next();
+    }
+}
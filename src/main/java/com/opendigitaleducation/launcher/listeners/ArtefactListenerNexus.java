@@ -2,6 +2,7 @@ package com.opendigitaleducation.launcher.listeners;
 
 import com.opendigitaleducation.launcher.config.ConfigChangeEvent;
 import com.opendigitaleducation.launcher.config.ConfigProvider;
+import com.opendigitaleducation.launcher.config.ServiceCatalog;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpServer;
@@ -29,7 +30,7 @@ public class ArtefactListenerNexus implements ArtefactListener{
     private ConfigChangeEventNexus lastEvent;
     private final List<Handler<ConfigChangeEvent>> handlers = new ArrayList<>();
     private final ConfigProvider configProvider;
-    private final Map<String, JsonObject> names = new HashMap<>();
+    private final ServiceCatalog services = new ServiceCatalog();
     private final Set<String> recentlyTriggered = new HashSet<>();
     public ArtefactListenerNexus(ConfigProvider aConfigProvider){
         this.configProvider = aConfigProvider;
@@ -47,16 +48,20 @@ public class ArtefactListenerNexus implements ArtefactListener{
     }
 
     private void addService(JsonObject service){
-        final String name = service.getString("name", "");
-        if(!name.isEmpty()){
-            final String [] cols = name.split("~");
-            if(cols.length == 3){
-                cols[0] = cols[0].replaceAll("\\.", "/");
-                cols[1] = cols[1].replaceAll("\\.", "/");
-                final String newName = String.join("/", cols);
-                names.put(newName, service);
-            }
+        services.put(service);
+    }
+
+    /**
+     * @param assetName path of the asset in the maven repository (groupId/artifactId/version/file)
+     * @return identifier groupId~artifactId~version of the asset or null if the path is not a maven path
+     */
+    static String identifier(String assetName){
+        final String [] cols = assetName.replaceAll("^/+", "").split("/");
+        if(cols.length < 4){
+            return null;
         }
+        final String groupId = String.join(".", Arrays.copyOfRange(cols, 0, cols.length - 3));
+        return groupId + "~" + cols[cols.length - 3] + "~" + cols[cols.length - 2];
     }
     @Override
     public ArtefactListener start(Vertx vertx, JsonObject config){
@@ -97,16 +102,15 @@ public class ArtefactListenerNexus implements ArtefactListener{
                                     reqH.response().setStatusCode(200).end(new JsonArray(modules).encode());
                                     return;
                                 }
-                                for (final Map.Entry<String, JsonObject> entry : names.entrySet()) {
-                                    if (name.contains(entry.getKey())) {
-                                        final JsonObject value = entry.getValue();
-                                        //nexus need some delay to return the last artefact when deploy
-                                        vertx.setTimer(delaySeconds * 1000, r->{
-                                            log.info("Trigger deploy from nexus for module : " + name);
-                                            pushEvent(new ConfigChangeEventNexus(value));
-                                        });
-                                        modules.add(entry.getKey());
-                                    }
+                                final String identifier = identifier(name);
+                                final JsonObject value = identifier != null ? services.get(identifier) : null;
+                                if (value != null) {
+                                    //nexus need some delay to return the last artefact when deploy
+                                    vertx.setTimer(delaySeconds * 1000, r->{
+                                        log.info("Trigger deploy from nexus for module : " + name);
+                                        pushEvent(new ConfigChangeEventNexus(value));
+                                    });
+                                    modules.add(name.substring(0, name.lastIndexOf('/')));
                                 }
                                 recentlyTriggered.add(name);
                                 vertx.setTimer(seconds * 1000, r -> {
@@ -0,0 +1,113 @@
+package com.opendigitaleducation.launcher.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * CPU and memory limits of the container read from the cgroup filesystem (v2 first, then v1).
+ */
+public class ContainerResources {
+    public static final String CGROUP_ROOT = "/sys/fs/cgroup";
+    // cgroup v1 reports "no limit" as a huge page-aligned value
+    private static final long UNLIMITED_MEMORY = 1L << 60;
+
+    private final double cpuLimit;
+    private final long memoryLimit;
+    private final String source;
+
+    private ContainerResources(double cpuLimit, long memoryLimit, String source) {
+        this.cpuLimit = cpuLimit;
+        this.memoryLimit = memoryLimit;
+        this.source = source;
+    }
+
+    public static ContainerResources detect() {
+        return read(Paths.get(CGROUP_ROOT));
+    }
+
+    public static ContainerResources read(Path root) {
+        final Path cpuMax = root.resolve("cpu.max");
+        if (Files.exists(cpuMax) || Files.exists(root.resolve("memory.max"))) {
+            double cpu = -1;
+            final String[] quota = readFirstLine(cpuMax).split("\\s+");
+            if (quota.length == 2 && !"max".equals(quota[0])) {
+                cpu = parseDouble(quota[0]) / parseDouble(quota[1]);
+            }
+            return new ContainerResources(cpu, parseMemory(readFirstLine(root.resolve("memory.max"))), "cgroup v2");
+        }
+        final Path cpuDir = Files.exists(root.resolve("cpu")) ? root.resolve("cpu") : root.resolve("cpu,cpuacct");
+        final double quota = parseDouble(readFirstLine(cpuDir.resolve("cpu.cfs_quota_us")));
+        final double period = parseDouble(readFirstLine(cpuDir.resolve("cpu.cfs_period_us")));
+        final double cpu = quota > 0 && period > 0 ? quota / period : -1;
+        final long memory = parseMemory(readFirstLine(root.resolve("memory").resolve("memory.limit_in_bytes")));
+        if (cpu < 0 && memory < 0) {
+            return new ContainerResources(-1, -1, "none");
+        }
+        return new ContainerResources(cpu, memory, "cgroup v1");
+    }
+
+    private static String readFirstLine(Path path) {
+        try {
+            if (Files.isReadable(path)) {
+                return new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim().split("\n")[0];
+            }
+        } catch (IOException e) {
+            // limit considered as unknown
+        }
+        return "";
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseMemory(String value) {
+        try {
+            final long memory = Long.parseLong(value);
+            return memory <= 0 || memory >= UNLIMITED_MEMORY ? -1 : memory;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return CPU quota in number of CPUs (-1 if not limited)
+     */
+    public double getCpuLimit() {
+        return cpuLimit;
+    }
+
+    /**
+     * @return number of CPUs usable by the JVM : the quota rounded up, bounded by the available processors
+     */
+    public int getEffectiveCpus() {
+        final int available = Runtime.getRuntime().availableProcessors();
+        if (cpuLimit <= 0) {
+            return available;
+        }
+        return Math.max(1, Math.min(available, (int) Math.ceil(cpuLimit)));
+    }
+
+    /**
+     * @return memory limit in bytes (-1 if not limited)
+     */
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return "ContainerResources{source=" + source + ", cpuLimit=" + cpuLimit + ", memoryLimit=" + memoryLimit + "}";
+    }
+}
@@ -5,9 +5,17 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
@@ -16,6 +24,7 @@ import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.utils.IOUtils;
 
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.Promise;
@@ -23,6 +32,7 @@ import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 
 public class ZipUtils {
+    public static final String CLASSPATH_FILE = ".classpath-in-place";
     private static final Logger log = LoggerFactory.getLogger(ZipUtils.class);
 
     public static void unzip(Vertx vertx, String input, String output, Handler<AsyncResult<Void>> handler) {
@@ -90,8 +100,32 @@ public class ZipUtils {
     }
 
     public static void unzipJar(Vertx vertx, String jarFile, String destDir, Handler<AsyncResult<Void>> handler) {
+        unzipJar(vertx, jarFile, destDir, false, handler);
+    }
+
+    /**
+     * Extracts the resources of a jar but not its classes, which are read from the jar by the class loader of the
+     * module, and writes the class path of the module (the jar then its nested jars) in {@link #CLASSPATH_FILE}.
+     */
+    public static void unzipResources(Vertx vertx, String jarFile, String destDir, Handler<AsyncResult<Void>> handler) {
+        unzipJar(vertx, jarFile, destDir, true, handler);
+    }
+
+    /**
+     * @return the class path written by {@link #unzipResources}, or the directory itself for an extracted module
+     */
+    public static Future<List<String>> classPath(Vertx vertx, String servicePath) {
+        return vertx.fileSystem().readFile(servicePath + File.separator + CLASSPATH_FILE)
+            .map(buffer -> Arrays.stream(buffer.toString().split("\n")).filter(l -> !l.isEmpty()).collect(Collectors.toList()))
+            .otherwise(Collections.singletonList(servicePath));
+    }
+
+    private static void unzipJar(Vertx vertx, String jarFile, String destDir, boolean resourcesOnly,
+            Handler<AsyncResult<Void>> handler) {
         vertx.executeBlocking(promise -> {
             final long start = System.currentTimeMillis();
+            final List<String> classPath = new ArrayList<>();
+            classPath.add(new File(jarFile).getAbsolutePath());
             JarFile jar = null;
             try {
                 jar = new JarFile(jarFile);
@@ -99,6 +133,12 @@ public class ZipUtils {
                 while (enumEntries.hasMoreElements()) {
                     final JarEntry file = enumEntries.nextElement();
                     final File f = new File(destDir + File.separator + file.getName());
+                    if (resourcesOnly && file.getName().endsWith(".class")) {
+                        continue;
+                    }
+                    if (resourcesOnly && file.getName().endsWith(".jar")) {
+                        classPath.add(f.getAbsolutePath());
+                    }
                     if (file.isDirectory()) {
                         f.mkdirs();
                         continue;
@@ -140,6 +180,14 @@ public class ZipUtils {
                     }
                 }
             }
+            if (resourcesOnly && !promise.future().isComplete()) {
+                try {
+                    Files.write(Paths.get(destDir, CLASSPATH_FILE), String.join("\n", classPath).getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    log.error("Error while writing class path of jar " + jarFile, e);
+                    promise.fail(e);
+                }
+            }
             log.info(jarFile + " - uncompress duration : " + (System.currentTimeMillis() - start));
             if (!promise.future().isComplete()) {
                 promise.complete();
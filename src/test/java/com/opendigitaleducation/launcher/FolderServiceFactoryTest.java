@@ -0,0 +1,241 @@
+package com.opendigitaleducation.launcher;
+
+import com.opendigitaleducation.launcher.classloader.ClassLoaderTracker;
+import com.opendigitaleducation.launcher.classloader.ClassWarmup;
+import com.opendigitaleducation.launcher.classloader.ModuleClassLoader;
+import com.opendigitaleducation.launcher.classloader.SharedLibraryLayer;
+import com.opendigitaleducation.launcher.classloader.SharedLibraryRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class FolderServiceFactoryTest {
+    private static final String VERTICLE = "package sample;\n" +
+        "public class SampleVerticle extends io.vertx.core.AbstractVerticle {\n" +
+        "  @Override\n" +
+        "  public void start() {\n" +
+        "    vertx.eventBus().consumer(config().getString(\"address\"), message -> message.reply(new io.vertx.core.json.JsonObject()\n" +
+        "      .put(\"greeting\", new Lazy().greet())\n" +
+        "      .put(\"verticleLoader\", getClass().getClassLoader().getClass().getName())\n" +
+        "      .put(\"verticle\", System.identityHashCode(getClass().getClassLoader()))\n" +
+        "      .put(\"libraryLoader\", sharedlib.Greeting.class.getClassLoader().getClass().getName())\n" +
+        "      .put(\"library\", System.identityHashCode(sharedlib.Greeting.class.getClassLoader()))));\n" +
+        "  }\n" +
+        "}\n";
+    private static final String LAZY = "package sample;\n" +
+        "public class Lazy {\n" +
+        "  public String greet() { return sharedlib.Greeting.hello(); }\n" +
+        "}\n";
+    private static final String GREETING = "package sharedlib;\n" +
+        "public class Greeting {\n" +
+        "  public static String hello() { return \"hello\"; }\n" +
+        "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+    private String servicesPath;
+    private String previousServicesPath;
+
+    @Before
+    public void setUp() throws Exception {
+        servicesPath = folder.newFolder("services").getAbsolutePath();
+        previousServicesPath = System.getProperty(FolderServiceFactory.SERVICES_PATH);
+        System.setProperty(FolderServiceFactory.SERVICES_PATH, servicesPath);
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        if (previousServicesPath == null) {
+            System.clearProperty(FolderServiceFactory.SERVICES_PATH);
+        } else {
+            System.setProperty(FolderServiceFactory.SERVICES_PATH, previousServicesPath);
+        }
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    /**
+     * Compiles the sample module : its classes must not be visible from the test class path.
+     */
+    private Path compile() throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+        final Path sources = folder.newFolder("sources").toPath();
+        final Path classes = folder.newFolder("classes").toPath();
+        Files.createDirectories(sources.resolve("sample"));
+        Files.createDirectories(sources.resolve("sharedlib"));
+        Files.write(sources.resolve("sample/SampleVerticle.java"), VERTICLE.getBytes(StandardCharsets.UTF_8));
+        Files.write(sources.resolve("sample/Lazy.java"), LAZY.getBytes(StandardCharsets.UTF_8));
+        Files.write(sources.resolve("sharedlib/Greeting.java"), GREETING.getBytes(StandardCharsets.UTF_8));
+        final String classPath = Paths.get(Vertx.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+            + File.pathSeparator + System.getProperty("java.class.path");
+        final int status = compiler.run(null, null, null, "-nowarn", "-d", classes.toString(), "-cp", classPath,
+            sources.resolve("sample/SampleVerticle.java").toString(), sources.resolve("sample/Lazy.java").toString(),
+            sources.resolve("sharedlib/Greeting.java").toString());
+        assertEquals(0, status);
+        return classes;
+    }
+
+    static void module(Path classes, String servicesPath, String identifier) throws Exception {
+        final Path root = Paths.get(servicesPath, identifier);
+        try (Stream<Path> files = Files.walk(classes)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                final Path target = root.resolve(classes.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(file, target);
+                }
+            }
+        }
+        Files.createDirectories(root.resolve("META-INF"));
+        Files.write(root.resolve("META-INF/MANIFEST.MF"), ("Manifest-Version: 1.0\nMain-Verticle: service:" +
+            identifier + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve(identifier + ".json"),
+            new JsonObject().put("main", "sample.SampleVerticle").encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Future<String> deployId(String identifier) {
+        final JsonObject config = new JsonObject().put("address", identifier);
+        return vertx.deployVerticle(FolderServiceFactory.FACTORY_PREFIX + ":" + identifier,
+                new io.vertx.core.DeploymentOptions().setConfig(config));
+    }
+
+    private Future<JsonObject> deploy(String identifier) {
+        return deployId(identifier).compose(id -> vertx.eventBus().<JsonObject>request(identifier, ""))
+            .map(message -> message.body());
+    }
+
+    @Test
+    public void testDeploy_sharedLibraryClassesShouldBeDefinedByTheLayer(TestContext context) throws Exception {
+        // Given
+        final Path classes = compile();
+        module(classes, servicesPath, "org.test~auth~1.0");
+        module(classes, servicesPath, "org.test~app~1.0");
+        final SharedLibraryRegistry registry = SharedLibraryRegistry.init(vertx, servicesPath,
+            new JsonObject().put("sharedLibraries", new JsonArray().add("sharedlib")));
+        final Async async = context.async();
+
+        // When
+        deploy("org.test~auth~1.0").compose(auth -> deploy("org.test~app~1.0").map(app -> new JsonObject()
+            .put("auth", auth).put("app", app))).onComplete(context.asyncAssertSuccess(res -> {
+            final JsonObject auth = res.getJsonObject("auth");
+            final JsonObject app = res.getJsonObject("app");
+
+            // Then
+            assertEquals("hello", auth.getString("greeting"));
+            assertEquals(ModuleClassLoader.class.getName(), auth.getString("verticleLoader"));
+            assertNotEquals(auth.getInteger("verticle"), app.getInteger("verticle"));
+            assertEquals(SharedLibraryLayer.class.getName(), auth.getString("libraryLoader"));
+            assertEquals(auth.getInteger("library"), app.getInteger("library"));
+            final JsonObject layer = registry.toJson().getJsonArray("layers").getJsonObject(0);
+            assertEquals(2, layer.getInteger("users").intValue());
+            assertTrue(registry.getSavedBytes() > 0);
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testUndeploy_shouldCloseClassLoaderOfLastDeploymentUsingIt(TestContext context) throws Exception {
+        // Given
+        final String identifier = "org.test~bluegreen~1.0";
+        module(compile(), servicesPath, identifier);
+        SharedLibraryRegistry.init(vertx, servicesPath, new JsonObject());
+        final ClassLoaderTracker tracker = ClassLoaderTracker.init(vertx, new JsonObject());
+        final Async async = context.async();
+
+        // When
+        deployId(identifier).compose(blue -> {
+            FolderServiceFactory.nextGeneration(identifier);
+            return deployId(identifier).compose(green -> deployId(identifier).compose(scaled -> {
+                // Then
+                assertNotSame(tracker.getClassLoader(blue), tracker.getClassLoader(green));
+                assertSame(tracker.getClassLoader(green), tracker.getClassLoader(scaled));
+                return vertx.undeploy(blue).compose(v -> {
+                    assertNull(tracker.getClassLoader(blue));
+                    assertEquals(1, tracker.getClosed());
+                    return vertx.undeploy(green);
+                }).compose(v -> {
+                    assertEquals(1, tracker.getClosed());
+                    assertNotNull(tracker.getClassLoader(scaled));
+                    return vertx.undeploy(scaled);
+                });
+            }));
+        }).onComplete(context.asyncAssertSuccess(v -> {
+            assertEquals(2, tracker.getClosed());
+            assertEquals(0, tracker.toJson().getJsonArray("modules").size());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testWarmup_shouldRecordAndPreloadWithVerticleClassLoader(TestContext context) throws Exception {
+        // Given
+        final String identifier = "org.test~warmup~1.0";
+        module(compile(), servicesPath, identifier);
+        SharedLibraryRegistry.init(vertx, servicesPath, new JsonObject());
+        final ClassLoaderTracker tracker = ClassLoaderTracker.init(vertx, new JsonObject());
+        final ClassWarmup warmup = ClassWarmup.init(vertx, servicesPath,
+            new JsonObject().put("warmup", true).put("warmupRecordDuration", 200L));
+        final Path classList = Paths.get(servicesPath, ClassWarmup.WARMUP_DIRECTORY, identifier + ".classes");
+        final Async async = context.async();
+
+        // When
+        deployId(identifier).compose(first -> warmup.warmup(identifier, tracker.getClassLoader(first))
+            .compose(v -> vertx.eventBus().request(identifier, ""))
+            .compose(v -> {
+                final Promise<Void> recorded = Promise.promise();
+                vertx.setPeriodic(10, id -> {
+                    if (Files.exists(classList)) {
+                        vertx.cancelTimer(id);
+                        recorded.complete();
+                    }
+                });
+                return recorded.future();
+            })
+            .compose(v -> vertx.undeploy(first)))
+            .compose(v -> deployId(identifier)).compose(second -> {
+                final ModuleClassLoader classLoader = tracker.getClassLoader(second);
+                final int deployed = classLoader.getLoadedClasses();
+                return warmup.warmup(identifier, classLoader).compose(v -> {
+                    final int warmedUp = classLoader.getLoadedClasses();
+                    return vertx.eventBus().request(identifier, "").map(m -> new JsonObject()
+                        .put("deployed", deployed).put("warmedUp", warmedUp)
+                        .put("used", classLoader.getLoadedClasses()));
+                });
+            }).onComplete(context.asyncAssertSuccess(counts -> {
+                // Then
+                assertTrue(vertx.fileSystem().readFileBlocking(classList.toString()).toString().contains("sample.Lazy"));
+                assertTrue(counts.getInteger("warmedUp") > counts.getInteger("deployed"));
+                // the preloaded classes are the ones used by the verticle : no second copy is defined
+                assertEquals(counts.getInteger("warmedUp"), counts.getInteger("used"));
+                async.complete();
+            }));
+    }
+}
@@ -0,0 +1,244 @@
+package com.opendigitaleducation.launcher;
+
+import com.opendigitaleducation.launcher.config.ConfigChangeEvent;
+import com.opendigitaleducation.launcher.config.ConfigProvider;
+import com.opendigitaleducation.launcher.config.ConfigProviderListener;
+import com.opendigitaleducation.launcher.deployer.DeploymentScheduler;
+import com.opendigitaleducation.launcher.deployer.ModuleDeployer;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class VertxServiceLauncherTest {
+    private static final String SERVICE_LAUNCHER = "service-launcher.deployment";
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private static JsonObject service(String name, String... depends) {
+        final JsonObject service = new JsonObject().put("name", name);
+        if (depends.length > 0) {
+            service.put("depends", new JsonArray(Arrays.asList(depends)));
+        }
+        return service;
+    }
+
+    /**
+     * Config provider returning a fixed list of services.
+     */
+    private static class StaticConfigProvider implements ConfigProvider {
+        private final List<JsonObject> services;
+
+        StaticConfigProvider(JsonObject... services) {
+            this.services = Arrays.asList(services);
+        }
+
+        @Override
+        public ConfigProvider triggerChange(ConfigChangeEvent event) {
+            return this;
+        }
+
+        @Override
+        public ConfigProvider onConfigChange(Handler<ConfigChangeEvent> handler) {
+            return this;
+        }
+
+        @Override
+        public ConfigProvider start(Vertx vertx, JsonObject config) {
+            return this;
+        }
+
+        @Override
+        public ConfigProvider stop(Vertx vertx) {
+            return this;
+        }
+
+        @Override
+        public ConfigProvider addListener(ConfigProviderListener listener) {
+            return this;
+        }
+
+        @Override
+        public JsonObject getServiceByName(String name) {
+            for (final JsonObject service : services) {
+                if (name.equals(service.getString("name"))) {
+                    return service;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public List<JsonObject> getServices() {
+            return services;
+        }
+    }
+
+    /**
+     * Deployer restarting each module in a few milliseconds, failing the modules of the given names, and
+     * recording the restarted modules and the maximum number of concurrent restarts.
+     */
+    private class Recorder implements ModuleDeployer {
+        final List<String> restarted = new ArrayList<>();
+        final List<String> failing;
+        int running = 0;
+        int maxRunning = 0;
+
+        Recorder(String... failing) {
+            this.failing = Arrays.asList(failing);
+        }
+
+        @Override
+        public Future<Void> restart(JsonObject service) {
+            final String name = service.getString("name");
+            restarted.add(name);
+            maxRunning = Math.max(maxRunning, ++running);
+            final Promise<Void> promise = Promise.promise();
+            vertx.setTimer(20, id -> {
+                running--;
+                if (failing.contains(name)) {
+                    promise.fail("restart failed");
+                } else {
+                    promise.complete();
+                }
+            });
+            return promise.future();
+        }
+
+        @Override
+        public Future<Void> deploy(JsonObject service) {
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public Future<Void> undeploy(JsonObject service) {
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public Future<Void> init() {
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public Future<Void> clean(JsonObject service) {
+            return Future.succeededFuture();
+        }
+    }
+
+    private void launcher(ConfigProvider configProvider, ModuleDeployer deployer) {
+        final VertxServiceLauncher launcher = new VertxServiceLauncher(configProvider, deployer,
+            new DeploymentScheduler(vertx, deployer, new JsonObject()));
+        launcher.init(vertx, vertx.getOrCreateContext());
+        vertx.eventBus().localConsumer(SERVICE_LAUNCHER, launcher.deploymentActions());
+    }
+
+    private static List<String> statuses(JsonArray modules, String status) {
+        final List<String> names = new ArrayList<>();
+        for (final Object module : modules) {
+            if (status.equals(((JsonObject) module).getString("status"))) {
+                names.add(((JsonObject) module).getString("module"));
+            }
+        }
+        return names;
+    }
+
+    @Test
+    public void testRestartModules_shouldRestartGlobWithinConcurrency(TestContext context) {
+        // Given
+        final Recorder recorder = new Recorder();
+        launcher(new StaticConfigProvider(service("org.entcore~app-one~1.0"), service("org.entcore~app-two~1.0"),
+            service("org.entcore~app-three~1.0"), service("org.entcore~auth~1.0")), recorder);
+        final List<JsonObject> progress = new ArrayList<>();
+        vertx.eventBus().<JsonObject>consumer(VertxServiceLauncher.PROGRESS_ADDRESS,
+            message -> progress.add(message.body()));
+        final Async async = context.async();
+
+        // When
+        vertx.eventBus().<JsonObject>request(SERVICE_LAUNCHER, new JsonObject().put("action", "restart-modules")
+            .put("glob", "app-*").put("concurrency", 2)).onComplete(context.asyncAssertSuccess(reply -> {
+            // Then
+            final JsonObject body = reply.body();
+            assertEquals("ok", body.getString("status"));
+            assertEquals(new HashSet<>(Arrays.asList("org.entcore~app-one~1.0", "org.entcore~app-two~1.0",
+                "org.entcore~app-three~1.0")), new HashSet<>(statuses(body.getJsonArray("modules"), "ok")));
+            assertEquals(3, recorder.restarted.size());
+            assertFalse(recorder.restarted.contains("org.entcore~auth~1.0"));
+            assertEquals(2, recorder.maxRunning);
+            vertx.setTimer(50, t -> {
+                assertEquals(3, progress.stream().filter(p -> "started".equals(p.getString("status"))).count());
+                assertEquals(3, progress.stream().filter(p -> "ok".equals(p.getString("status"))).count());
+                async.complete();
+            });
+        }));
+    }
+
+    @Test
+    public void testRestartModules_shouldSkipDependentsOfFailedModule(TestContext context) {
+        // Given
+        final Recorder recorder = new Recorder("org.entcore~auth~1.0");
+        launcher(new StaticConfigProvider(service("org.entcore~auth~1.0"),
+            service("org.entcore~directory~1.0", "org.entcore.auth"), service("org.entcore~blog~1.0")), recorder);
+        final List<JsonObject> progress = new ArrayList<>();
+        vertx.eventBus().<JsonObject>consumer(VertxServiceLauncher.PROGRESS_ADDRESS,
+            message -> progress.add(message.body()));
+        final Async async = context.async();
+
+        // When
+        vertx.eventBus().<JsonObject>request(SERVICE_LAUNCHER, new JsonObject().put("action", "restart-modules")
+            .put("modules", new JsonArray().add("org.entcore~auth~1.0").add("org.entcore~directory~1.0")
+                .add("org.entcore~blog~1.0").add("org.entcore~unknown~1.0")))
+            .onComplete(context.asyncAssertSuccess(reply -> {
+                // Then
+                final JsonObject body = reply.body();
+                assertEquals("error", body.getString("status"));
+                final JsonArray modules = body.getJsonArray("modules");
+                assertEquals(Arrays.asList("org.entcore~auth~1.0"), statuses(modules, "error"));
+                assertEquals(Arrays.asList("org.entcore~directory~1.0"), statuses(modules, "skipped"));
+                assertEquals(Arrays.asList("org.entcore~blog~1.0"), statuses(modules, "ok"));
+                assertFalse(recorder.restarted.contains("org.entcore~directory~1.0"));
+                vertx.setTimer(50, t -> {
+                    assertTrue(progress.stream().anyMatch(p -> "skipped".equals(p.getString("status")) &&
+                        "org.entcore~directory~1.0".equals(p.getString("module"))));
+                    async.complete();
+                });
+            }));
+    }
+
+    @Test
+    public void testRestartModules_shouldFailWhenNoModuleMatches(TestContext context) {
+        // Given
+        launcher(new StaticConfigProvider(service("org.entcore~auth~1.0")), new Recorder());
+
+        // When
+        vertx.eventBus().request(SERVICE_LAUNCHER, new JsonObject().put("action", "restart-modules")
+            .put("glob", "app-*")).onComplete(context.asyncAssertFailure());
+    }
+}
@@ -0,0 +1,98 @@
+package com.opendigitaleducation.launcher;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.net.NetServer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class VertxWithPreConfigLauncherTest {
+    private static final Logger log = LoggerFactory.getLogger(VertxWithPreConfigLauncherTest.class);
+    private static final int ROUND_TRIPS = 2000;
+
+    private static VertxOptions options(JsonObject config, boolean preferNativeTransport) {
+        final VertxWithPreConfigLauncher launcher = new VertxWithPreConfigLauncher();
+        launcher.afterConfigParsed(config);
+        final VertxOptions options = new VertxOptions().setPreferNativeTransport(preferNativeTransport);
+        launcher.selectTransport(options);
+        return options;
+    }
+
+    @Test
+    public void testSelectTransport_shouldFollowTheMode() {
+        final boolean epoll = VertxWithPreConfigLauncher.isEpollAvailable();
+        // not set : the Vert.x options are kept
+        assertTrue(options(new JsonObject(), true).getPreferNativeTransport());
+        assertFalse(options(new JsonObject(), false).getPreferNativeTransport());
+        // nio is forced even if the Vert.x options prefer the native transport
+        assertFalse(options(new JsonObject().put("transport", "nio"), true).getPreferNativeTransport());
+        // epoll and auto use the native transport when it is available
+        assertEquals(epoll, options(new JsonObject().put("transport", "epoll"), false).getPreferNativeTransport());
+        assertEquals(epoll, options(new JsonObject().put("transport", "auto"), false).getPreferNativeTransport());
+        // unknown mode : the Vert.x options are kept
+        assertTrue(options(new JsonObject().put("transport", "kqueue"), true).getPreferNativeTransport());
+    }
+
+    /**
+     * Measures the round trip of small messages over loopback TCP (the transport of the clustered event bus)
+     * with nio and, when available, epoll. The mean latency is logged.
+     */
+    @Test
+    public void testTransport_roundTripBenchmark() throws Exception {
+        final List<String> modes = new ArrayList<>();
+        modes.add("nio");
+        if (VertxWithPreConfigLauncher.isEpollAvailable()) {
+            modes.add("epoll");
+        }
+        for (final String mode : modes) {
+            final Vertx vertx = Vertx.vertx(options(new JsonObject().put("transport", mode), false));
+            try {
+                assertEquals("epoll".equals(mode), vertx.isNativeTransportEnabled());
+                final long nanos = roundTrips(vertx).toCompletionStage().toCompletableFuture().get(60, TimeUnit.SECONDS);
+                log.info(String.format("Transport %s : %s round trips, mean %s us", mode, ROUND_TRIPS,
+                        nanos / ROUND_TRIPS / 1000));
+                assertTrue(nanos > 0);
+            } finally {
+                vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private static Future<Long> roundTrips(Vertx vertx) {
+        final NetServer server = vertx.createNetServer().connectHandler(socket -> socket.handler(socket::write));
+        return server.listen(0, "127.0.0.1")
+            .compose(s -> vertx.createNetClient().connect(s.actualPort(), "127.0.0.1"))
+            .compose(socket -> {
+                final Promise<Long> promise = Promise.promise();
+                final Buffer ping = Buffer.buffer(new byte[64]);
+                final int[] received = {0};
+                final int[] count = {0};
+                final long start = System.nanoTime();
+                socket.handler(buffer -> {
+                    received[0] += buffer.length();
+                    if (received[0] < ping.length()) {
+                        return;
+                    }
+                    received[0] = 0;
+                    if (++count[0] == ROUND_TRIPS) {
+                        promise.complete(System.nanoTime() - start);
+                    } else {
+                        socket.write(ping);
+                    }
+                });
+                socket.write(ping);
+                return promise.future().onComplete(r -> socket.close());
+            });
+    }
+}
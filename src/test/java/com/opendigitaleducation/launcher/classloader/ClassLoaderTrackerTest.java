@@ -0,0 +1,72 @@
+package com.opendigitaleducation.launcher.classloader;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.net.URL;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ClassLoaderTrackerTest {
+    private static final String MODULE = "org.entcore~auth~1.0";
+
+    private static ModuleClassLoader classLoader() {
+        return new ModuleClassLoader(new URL[0], null, Collections.emptyList());
+    }
+
+    @Test
+    public void testUndeployed_shouldCloseClassLoaderOfDeploymentAndReportLeaks() {
+        // Given
+        final ClassLoaderTracker tracker = new ClassLoaderTracker(null, new JsonObject().put("classLoaderLeakThreshold", -1L));
+        final ModuleClassLoader blue = classLoader();
+        final ModuleClassLoader green = classLoader();
+        final ModuleClassLoader failed = classLoader();
+        tracker.register(MODULE + "#0", MODULE, blue);
+        tracker.deployed("blue", blue);
+        tracker.register(MODULE + "#1", MODULE, green);
+        tracker.deployed("green", green);
+        tracker.register(MODULE + "#2", MODULE, failed);
+
+        // When
+        tracker.release(failed);
+        tracker.undeployed("blue");
+        tracker.check();
+
+        // Then
+        final JsonObject json = tracker.toJson();
+        assertEquals(1, json.getJsonArray("modules").getJsonObject(0).getInteger("classLoaders").intValue());
+        assertSame(green, tracker.getClassLoader("green"));
+        assertNull(tracker.getClassLoader("blue"));
+        assertNull(tracker.acquire(MODULE + "#0"));
+        assertEquals(2, json.getInteger("closed").intValue());
+        // both class loaders are still referenced by the test
+        assertEquals(2, tracker.getLeaked());
+        assertNotNull(green);
+        assertNotNull(blue);
+        assertNotNull(failed);
+    }
+
+    @Test
+    public void testAcquire_shouldShareClassLoaderUntilLastDeploymentIsUndeployed() {
+        // Given
+        final ClassLoaderTracker tracker = new ClassLoaderTracker(null, new JsonObject());
+        final ModuleClassLoader classLoader = classLoader();
+        tracker.register(MODULE + "#0", MODULE, classLoader);
+        tracker.deployed("main", classLoader);
+
+        // When
+        final ModuleClassLoader scaled = tracker.acquire(MODULE + "#0");
+        tracker.deployed("scaled", scaled);
+        tracker.undeployed("main");
+
+        // Then
+        assertSame(classLoader, scaled);
+        assertEquals(0, tracker.getClosed());
+        assertFalse(tracker.undeployed("main"));
+        assertTrue(tracker.undeployed("scaled"));
+        assertEquals(1, tracker.getClosed());
+        assertFalse(tracker.deployed("late", classLoader));
+        assertNull(tracker.acquire(MODULE + "#0"));
+    }
+}
@@ -0,0 +1,109 @@
+package com.opendigitaleducation.launcher.classloader;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class ClassWarmupTest {
+    private static final String MODULE = "org.entcore~auth~1.0";
+    private static final String SAMPLE = Sample.class.getName();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+
+    public static class Sample {
+    }
+
+    private static class CountingClassLoader extends ModuleClassLoader {
+        private final List<String> found = new CopyOnWriteArrayList<>();
+
+        CountingClassLoader(URL[] urls) {
+            super(urls, null, Collections.emptyList());
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            final Class<?> clazz = super.findClass(name);
+            found.add(name);
+            return clazz;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private URL[] module() throws Exception {
+        final Path root = folder.getRoot().toPath().resolve(MODULE);
+        final Path library = root.resolve(ClassWarmupTest.class.getPackage().getName().replace('.', File.separatorChar));
+        Files.createDirectories(library);
+        try (InputStream is = getClass().getResourceAsStream("ClassWarmupTest$Sample.class")) {
+            Files.copy(is, library.resolve("ClassWarmupTest$Sample.class"));
+        }
+        return new URL[]{root.toUri().toURL()};
+    }
+
+    @Test
+    public void testWarmup_shouldPreloadRecordedClasses(TestContext context) throws Exception {
+        // Given
+        final ClassWarmup warmup = ClassWarmup.init(vertx, folder.getRoot().getAbsolutePath(),
+                new JsonObject().put("warmup", true).put("warmupRecordDuration", 10L));
+        final URL[] urls = module();
+        final CountingClassLoader recording = new CountingClassLoader(urls);
+        warmup.attach(recording);
+        recording.loadClass(SAMPLE);
+        final File classList = new File(folder.getRoot(), ClassWarmup.WARMUP_DIRECTORY + File.separator + MODULE + ".classes");
+        final CountingClassLoader next = new CountingClassLoader(urls);
+        final Async async = context.async();
+
+        // When
+        warmup.warmup(MODULE, recording).compose(v -> {
+            final Promise<Void> recorded = Promise.promise();
+            vertx.setPeriodic(10, id -> {
+                if (classList.exists()) {
+                    vertx.cancelTimer(id);
+                    recorded.complete();
+                }
+            });
+            return recorded.future();
+        }).compose(v -> {
+            assertTrue(next.found.isEmpty());
+            warmup.attach(next);
+            return warmup.warmup(MODULE, next);
+        }).onComplete(context.asyncAssertSuccess(v -> {
+            // Then
+            assertEquals(Collections.singletonList(SAMPLE), next.found);
+            async.complete();
+        }));
+    }
+}
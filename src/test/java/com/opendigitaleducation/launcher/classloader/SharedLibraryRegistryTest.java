@@ -0,0 +1,140 @@
+package com.opendigitaleducation.launcher.classloader;
+
+import com.opendigitaleducation.launcher.utils.FileUtils;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class SharedLibraryRegistryTest {
+    private static final String LIBRARY = "com.opendigitaleducation.launcher.classloader";
+    private static final String SAMPLE = Sample.class.getName();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+
+    public static class Sample {
+    }
+
+    /** Class of the library extending a class which is only in the module. */
+    public static class Broken extends FileUtils {
+    }
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private String module(String name, byte[] extra) throws Exception {
+        final Path library = folder.getRoot().toPath().resolve(name).resolve(LIBRARY.replace('.', File.separatorChar));
+        Files.createDirectories(library);
+        try (InputStream is = getClass().getResourceAsStream("SharedLibraryRegistryTest$Sample.class")) {
+            Files.copy(is, library.resolve("SharedLibraryRegistryTest$Sample.class"));
+        }
+        if (extra != null) {
+            Files.write(library.resolve("extra.properties"), extra);
+        }
+        return folder.getRoot().getAbsolutePath() + File.separator + name + File.separator;
+    }
+
+    @Test
+    public void testClassLoader_identicalLibrariesShouldBeLoadedOnce(TestContext context) throws Exception {
+        // Given
+        final SharedLibraryRegistry registry = SharedLibraryRegistry.init(vertx, folder.getRoot().getAbsolutePath(),
+                new JsonObject().put("sharedLibraries", new JsonArray().add(LIBRARY)));
+        final String auth = module("org.entcore~auth~1.0", null);
+        final String app = module("org.entcore~app~1.0", null);
+        final String other = module("org.entcore~other~1.0", "other".getBytes());
+        final Async async = context.async();
+
+        // When
+        Future.all(registry.classLoader("org.entcore~auth~1.0", auth, Collections.singletonList(auth), null),
+                registry.classLoader("org.entcore~app~1.0", app, Collections.singletonList(app), null),
+                registry.classLoader("org.entcore~other~1.0", other, Collections.singletonList(other), null)).onComplete(context.asyncAssertSuccess(res -> {
+            try {
+                final Class<?> authSample = res.<URLClassLoader>resultAt(0).loadClass(SAMPLE);
+                final Class<?> appSample = res.<URLClassLoader>resultAt(1).loadClass(SAMPLE);
+                final Class<?> otherSample = res.<URLClassLoader>resultAt(2).loadClass(SAMPLE);
+
+                // Then
+                assertSame(authSample, appSample);
+                assertNotSame(authSample, otherSample);
+                assertTrue(authSample.getClassLoader() instanceof SharedLibraryLayer);
+                assertNotSame(Sample.class, authSample);
+                assertTrue(registry.getSavedBytes() > 0);
+                assertEquals(2, registry.toJson().getJsonArray("layers").size());
+                registry.release("org.entcore~app~1.0");
+                assertEquals(0, registry.getSavedBytes());
+                async.complete();
+            } catch (ClassNotFoundException e) {
+                context.fail(e);
+            }
+        }));
+    }
+
+    @Test
+    public void testClassLoader_libraryFailingToLinkShouldBeLoadedByModules(TestContext context) throws Exception {
+        // Given
+        final SharedLibraryRegistry registry = SharedLibraryRegistry.init(vertx, folder.getRoot().getAbsolutePath(),
+                new JsonObject().put("sharedLibraries", new JsonArray().add(LIBRARY)));
+        final String auth = module("org.entcore~auth~1.0", null);
+        final String app = module("org.entcore~app~1.0", null);
+        for (final String module : new String[]{auth, app}) {
+            final Path library = Paths.get(module, LIBRARY.replace('.', File.separatorChar));
+            final Path utils = Paths.get(module, FileUtils.class.getPackage().getName().replace('.', File.separatorChar));
+            Files.createDirectories(utils);
+            try (InputStream is = getClass().getResourceAsStream("SharedLibraryRegistryTest$Broken.class");
+                 InputStream fileUtils = FileUtils.class.getResourceAsStream("FileUtils.class")) {
+                Files.copy(is, library.resolve("SharedLibraryRegistryTest$Broken.class"));
+                Files.copy(fileUtils, utils.resolve("FileUtils.class"));
+            }
+        }
+        final Async async = context.async();
+
+        // When
+        registry.classLoader("org.entcore~auth~1.0", auth, Collections.singletonList(auth), null)
+            .compose(authLoader -> {
+                try {
+                    final Class<?> broken = authLoader.loadClass(Broken.class.getName());
+
+                    // Then
+                    assertSame(authLoader, broken.getClassLoader());
+                    assertTrue(authLoader.getLayers().get(0).isLinkageFailed());
+                    assertSame(authLoader, authLoader.loadClass(SAMPLE).getClassLoader());
+                } catch (ClassNotFoundException e) {
+                    return Future.failedFuture(e);
+                }
+                return registry.classLoader("org.entcore~app~1.0", app, Collections.singletonList(app), null);
+            }).onComplete(context.asyncAssertSuccess(appLoader -> {
+                assertTrue(appLoader.getLayers().isEmpty());
+                async.complete();
+            }));
+    }
+}
@@ -0,0 +1,134 @@
+package com.opendigitaleducation.launcher.config;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConfigProviderDiffTest {
+
+    private static JsonObject service(String name, String address) {
+        return new JsonObject().put("name", name).put("config", new JsonObject().put("address", address));
+    }
+
+    private static JsonObject config(JsonObject... services) {
+        final JsonArray array = new JsonArray();
+        for (final JsonObject service : services) {
+            array.add(service);
+        }
+        return new JsonObject().put("services", array);
+    }
+
+    private static List<String> names(List<JsonObject> services) {
+        final List<String> names = new ArrayList<>();
+        for (final JsonObject service : services) {
+            names.add(service.getString("name"));
+        }
+        return names;
+    }
+
+    @Test
+    public void testReload_shouldEmitOnlyChangedServices() {
+        // Given
+        final ConfigProviderDiff provider = new ConfigProviderDiff();
+        provider.start(null, config(service("org.entcore~auth~1.0", "auth"),
+                service("org.entcore~app~1.0", "app"), service("org.entcore~old~1.0", "old")));
+        final List<ConfigChangeEvent> events = new ArrayList<>();
+        provider.onConfigChange(events::add);
+        assertEquals(3, events.get(0).getServicesToDeploy().size());
+        events.get(0).end(true);
+
+        // When
+        final ConfigChangeEvent diff = provider.reload(config(service("org.entcore~auth~1.0", "auth"),
+                service("org.entcore~app~2.0", "app"), service("org.entcore~conv~1.0", "conv")));
+
+        // Then
+        assertSame(diff, events.get(1));
+        assertEquals(Arrays.asList("org.entcore~app~2.0", "org.entcore~conv~1.0"), names(diff.getServicesToDeploy()));
+        assertEquals(Arrays.asList("org.entcore~app~1.0", "org.entcore~old~1.0"), names(diff.getServicesToUndeploy()));
+        assertTrue(diff.getServicesToRestart().isEmpty());
+    }
+
+    @Test
+    public void testReload_shouldRestartServicesWhoseConfigChanged() {
+        // Given
+        final ConfigProviderDiff provider = new ConfigProviderDiff();
+        provider.start(null, config(service("org.entcore~auth~1.0", "auth"), service("org.entcore~app~1.0", "app")));
+        final List<ConfigChangeEvent> events = new ArrayList<>();
+        provider.onConfigChange(events::add);
+        events.get(0).end(true);
+
+        // When
+        final JsonObject reordered = new JsonObject().put("config", new JsonObject().put("address", "auth"))
+            .put("name", "org.entcore~auth~1.0");
+        final ConfigChangeEvent diff = provider.reload(config(reordered, service("org.entcore~app~1.0", "app2")));
+
+        // Then
+        assertTrue(diff.getServicesToDeploy().isEmpty());
+        assertTrue(diff.getServicesToUndeploy().isEmpty());
+        assertEquals(Collections.singletonList("org.entcore~app~1.0"), names(diff.getServicesToRestart()));
+    }
+
+    @Test
+    public void testReload_failedChangeIsNotApplied() {
+        // Given
+        final ConfigProviderDiff provider = new ConfigProviderDiff();
+        provider.start(null, config(service("org.entcore~app~1.0", "app")));
+        final List<ConfigChangeEvent> events = new ArrayList<>();
+        provider.onConfigChange(events::add);
+        events.get(0).end(false);
+
+        // When
+        final ConfigChangeEvent diff = provider.reload(config(service("org.entcore~app~1.0", "app")));
+
+        // Then
+        assertEquals(1, diff.getServicesToDeploy().size());
+    }
+
+    @Test
+    public void testTriggerChange_appliedArtefactIsNotDeployedAgain() {
+        // Given
+        final JsonObject app = service("org.entcore~app~1.0-SNAPSHOT", "app");
+        final ConfigProviderDiff provider = new ConfigProviderDiff();
+        provider.start(null, config(service("org.entcore~auth~1.0", "auth")));
+        final List<ConfigChangeEvent> events = new ArrayList<>();
+        provider.onConfigChange(events::add);
+        events.get(0).end(true);
+        final ConfigChangeEvent artefact = new ConfigChangeEvent() {
+            @Override
+            public JsonObject getDump() {
+                return config(app);
+            }
+
+            @Override
+            public List<JsonObject> getServicesToRestart() {
+                return new ArrayList<>();
+            }
+
+            @Override
+            public List<JsonObject> getServicesToUndeploy() {
+                return Collections.singletonList(app);
+            }
+
+            @Override
+            public List<JsonObject> getServicesToDeploy() {
+                return Collections.singletonList(app);
+            }
+        };
+
+        // When
+        provider.triggerChange(artefact);
+        events.get(1).end(true);
+        final ConfigChangeEvent diff = provider.reload(config(service("org.entcore~auth~1.0", "auth"), app.copy()));
+
+        // Then
+        assertSame(artefact, events.get(1));
+        assertFalse(diff.hasPendingTasks());
+    }
+}
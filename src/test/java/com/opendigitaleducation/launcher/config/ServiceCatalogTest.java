@@ -0,0 +1,81 @@
+package com.opendigitaleducation.launcher.config;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ServiceCatalogTest {
+
+    private static JsonObject service(String name, String address) {
+        return new JsonObject().put("name", name).put("config", new JsonObject().put("address", address));
+    }
+
+    @Test
+    public void testLookups_shouldUseIndexes() {
+        // Given
+        final JsonObject auth = service("org.entcore~auth~1.0", "wse.auth");
+        final JsonObject directory = service("org.entcore~directory~1.0", "directory");
+        final JsonObject blog = service("fr.wseduc~blog~2.0", "net.atos.entng.blog");
+        final ServiceCatalog catalog = new ServiceCatalog();
+
+        // When
+        catalog.update(Arrays.asList(auth, directory, blog));
+
+        // Then
+        assertSame(auth, catalog.get("org.entcore~auth~1.0"));
+        assertSame(directory, catalog.getByArtifactId("directory"));
+        assertSame(blog, catalog.get("fr.wseduc~blog~2.0"));
+        assertEquals(Arrays.asList(auth, directory), catalog.getByGroupId("org.entcore"));
+        assertNull(catalog.get("org.entcore~auth~2.0"));
+        assertNull(catalog.getByArtifactId("conversation"));
+    }
+
+    @Test
+    public void testUpdate_shouldOnlyReindexChangedServices() {
+        // Given
+        final JsonObject auth = service("org.entcore~auth~1.0", "wse.auth");
+        final JsonObject directory = service("org.entcore~directory~1.0", "directory");
+        final ServiceCatalog catalog = new ServiceCatalog();
+        catalog.update(Arrays.asList(auth, directory));
+        final JsonObject newAuth = service("org.entcore~auth~1.1", "wse.auth");
+
+        // When
+        final int changes = catalog.update(Arrays.asList(newAuth, directory));
+
+        // Then
+        assertEquals(2, changes);
+        assertEquals(2, catalog.size());
+        assertNull(catalog.get("org.entcore~auth~1.0"));
+        assertSame(newAuth, catalog.getByArtifactId("auth"));
+        assertEquals(0, catalog.update(Arrays.asList(newAuth, directory)));
+        catalog.update(Collections.emptyList());
+        assertEquals(0, catalog.size());
+        assertTrue(catalog.getByGroupId("org.entcore").isEmpty());
+        assertNull(catalog.getByArtifactId("directory"));
+    }
+
+    @Test
+    public void testUpdate_shouldCompareServicesOnTheirContent() {
+        // Given
+        final JsonObject auth = service("org.entcore~auth~1.0", "wse.auth");
+        final JsonObject directory = service("org.entcore~directory~1.0", "directory");
+        final ServiceCatalog catalog = new ServiceCatalog();
+        catalog.update(Arrays.asList(auth, directory));
+        final JsonObject authCopy = auth.copy();
+        final JsonObject modifiedDirectory = service("org.entcore~directory~1.0", "directory.v2");
+
+        // When
+        final int changes = catalog.update(Arrays.asList(authCopy, modifiedDirectory));
+
+        // Then : the copy is not a change but replaces the previous instance
+        assertEquals(1, changes);
+        assertSame(authCopy, catalog.get("org.entcore~auth~1.0"));
+        assertSame(authCopy, catalog.getByArtifactId("auth"));
+        assertSame(modifiedDirectory, catalog.getByArtifactId("directory"));
+        assertEquals(Arrays.asList(authCopy, modifiedDirectory), catalog.getByGroupId("org.entcore"));
+    }
+}
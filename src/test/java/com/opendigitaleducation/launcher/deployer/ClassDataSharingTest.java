@@ -0,0 +1,24 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ClassDataSharingTest {
+
+    @Test
+    public void testKey_shouldDependOnModuleVersionsOnly() {
+        // Given
+        final String key = ClassDataSharing.key(Arrays.asList("org.entcore~auth~1.0", "org.entcore~app~1.0"));
+
+        // When
+        final String reordered = ClassDataSharing.key(Arrays.asList("org.entcore~app~1.0", "org.entcore~auth~1.0"));
+        final String upgraded = ClassDataSharing.key(Arrays.asList("org.entcore~app~1.1", "org.entcore~auth~1.0"));
+
+        // Then
+        assertEquals(key, reordered);
+        assertNotEquals(key, upgraded);
+    }
+}
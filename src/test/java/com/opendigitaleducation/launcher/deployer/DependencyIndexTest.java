@@ -0,0 +1,111 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+import com.opendigitaleducation.launcher.discovery.impl.NopServiceDiscovery;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class DependencyIndexTest {
+    private static final String ADDRESS = "test-module-deployment";
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testAwait_completedWhenLastDependencyIsLive(TestContext context) {
+        // Given
+        final DependencyIndex index = new DependencyIndex(vertx, new NopServiceDiscovery(), ADDRESS, new JsonObject());
+        index.live("org.entcore.auth");
+        final Future<Void> future = index.await("org.entcore~app~1.0",
+                Arrays.asList("org.entcore.auth", "org.entcore.directory", "org.entcore.conversation"));
+
+        // When
+        index.live("org.entcore.directory");
+        assertFalse(future.isComplete());
+        vertx.eventBus().publish(ADDRESS, "org.entcore.conversation");
+
+        // Then
+        final Async async = context.async();
+        future.onComplete(context.asyncAssertSuccess(v -> async.complete()));
+    }
+
+    @Test
+    public void testAwait_waitsAgainForDependencyWhichWentAway(TestContext context) {
+        // Given
+        final Set<String> registered = ConcurrentHashMap.newKeySet();
+        registered.add("org.entcore.auth");
+        final DependencyIndex index = new DependencyIndex(vertx, new NopServiceDiscovery() {
+            @Override
+            public Future<Map<String, List<ServiceInfo>>> getServicesInfos(List<String> services) {
+                final Map<String, List<ServiceInfo>> infos = new HashMap<>();
+                for (final String service : services) {
+                    if (registered.contains(service)) {
+                        infos.put(service, Collections.emptyList());
+                    }
+                }
+                return Future.succeededFuture(infos);
+            }
+        }, ADDRESS, new JsonObject());
+        index.live("org.entcore.auth");
+        // undeployed since its deployment notification
+        index.live("org.entcore.directory");
+
+        // When
+        final Future<Void> future = index.await("org.entcore~app~1.0",
+                Arrays.asList("org.entcore.auth", "org.entcore.directory"));
+
+        // Then
+        assertFalse(future.isComplete());
+        assertFalse(index.isLive("org.entcore.directory"));
+        assertTrue(index.isLive("org.entcore.auth"));
+        registered.add("org.entcore.directory");
+        vertx.eventBus().publish(ADDRESS, "org.entcore.directory");
+        final Async async = context.async();
+        future.onComplete(context.asyncAssertSuccess(v -> async.complete()));
+    }
+
+    @Test
+    public void testAwait_failedAfterTimeout(TestContext context) {
+        // Given
+        final DependencyIndex index = new DependencyIndex(vertx, new NopServiceDiscovery(), ADDRESS,
+                new JsonObject().put("dependencyTimeout", 50));
+
+        // When
+        final Future<Void> future = index.await("org.entcore~app~1.0", Collections.singletonList("org.entcore.auth"));
+
+        // Then
+        final Async async = context.async();
+        future.onComplete(context.asyncAssertFailure(e -> {
+            assertTrue(e.getMessage().contains("org.entcore.auth"));
+            async.complete();
+        }));
+    }
+}
@@ -0,0 +1,133 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class DeploymentJournalTest {
+    private static final String MODULE = "org.entcore~auth~1.0";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+    private String servicesPath;
+
+    @Before
+    public void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        servicesPath = folder.newFolder("services").getAbsolutePath();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private String artefact(String content) {
+        final String artefact = new File(servicesPath, MODULE + "-fat.jar").getAbsolutePath();
+        vertx.fileSystem().writeFileBlocking(artefact, Buffer.buffer(content));
+        return artefact;
+    }
+
+    @Test
+    public void testStates_shouldBePersistedAcrossRestarts(TestContext context) throws Exception {
+        // Given
+        final DeploymentJournal journal = new DeploymentJournal(vertx, servicesPath);
+        final String artefact = artefact("v1");
+        final Async async = context.async();
+
+        // When
+        journal.extracting(MODULE).compose(v -> {
+            // Then
+            assertEquals(DeploymentJournal.EXTRACTING, new DeploymentJournal(vertx, servicesPath).getState(MODULE));
+            return journal.extracted(MODULE, artefact);
+        }).onComplete(context.asyncAssertSuccess(v -> {
+            assertEquals(DeploymentJournal.EXTRACTED, journal.getState(MODULE));
+            journal.stale(MODULE);
+            assertEquals(DeploymentJournal.STALE, journal.getState(MODULE));
+            journal.remove(MODULE);
+            assertNull(journal.getState(MODULE));
+            assertNull(new DeploymentJournal(vertx, null).getState(MODULE));
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testIsUnchanged_shouldReuseStaleDirectoryOnlyForSameArtefact(TestContext context) throws Exception {
+        // Given
+        final DeploymentJournal journal = new DeploymentJournal(vertx, servicesPath);
+        final String artefact = artefact("v1");
+        final Async async = context.async();
+
+        // When
+        journal.extracted(MODULE, artefact).compose(v -> {
+            journal.stale(MODULE);
+            return journal.isUnchanged(MODULE, artefact);
+        }).compose(unchanged -> {
+            // Then
+            assertTrue(unchanged);
+            return journal.isUnchanged(MODULE, artefact("v2"));
+        }).onComplete(context.asyncAssertSuccess(unchanged -> {
+            // checksum mismatch : the artefact must be extracted again
+            assertFalse(unchanged);
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testPurgeStale_shouldDeleteDirectoriesNotDeployedAgain(TestContext context) throws Exception {
+        // Given
+        final DeploymentJournal journal = new DeploymentJournal(vertx, servicesPath);
+        final File directory = new File(servicesPath, MODULE);
+        assertTrue(directory.mkdirs());
+        final Async async = context.async();
+
+        // When
+        journal.extracted(MODULE, artefact("v1")).compose(v -> {
+            journal.stale(MODULE);
+            return journal.purgeStale();
+        }).onComplete(context.asyncAssertSuccess(v -> {
+            // Then
+            assertFalse(directory.exists());
+            assertNull(journal.getState(MODULE));
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testIsReusable_shouldRequireSameConfigurationAndExtractedArtefact(TestContext context) throws Exception {
+        // Given
+        final DeploymentJournal journal = new DeploymentJournal(vertx, servicesPath);
+        final JsonObject service = new JsonObject().put("name", MODULE).put("config", new JsonObject().put("port", 8090));
+        final JsonObject snapshot = new JsonObject().put("name", "org.entcore~app~1.0-SNAPSHOT");
+        final Async async = context.async();
+
+        // When
+        journal.setDump(new JsonObject().put("services", new JsonArray().add(service).add(snapshot)));
+        assertFalse(journal.isReusable(service));
+        journal.extracted(MODULE, artefact("v1")).onComplete(context.asyncAssertSuccess(v -> {
+            // Then
+            assertTrue(journal.isReusable(service));
+            assertFalse(journal.isReusable(service.copy().put("config", new JsonObject().put("port", 8091))));
+            assertFalse(journal.isReusable(snapshot));
+            assertTrue(new DeploymentJournal(vertx, servicesPath).isUnchanged(service));
+            async.complete();
+        }));
+    }
+}
@@ -0,0 +1,173 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class DeploymentPlanTest {
+
+    private static JsonObject service(String artifact, String... depends) {
+        final JsonObject service = new JsonObject().put("name", "org.entcore~" + artifact + "~1.0");
+        if (depends.length > 0) {
+            service.put("depends", new JsonArray(Arrays.asList(depends)));
+        }
+        return service;
+    }
+
+    /** Records started services and lets the test complete them one by one. */
+    private static class Recorder {
+        final Map<String, Promise<Void>> running = new LinkedHashMap<>();
+        final List<String> started = new ArrayList<>();
+
+        Future<Void> deploy(JsonObject service) {
+            final String name = service.getString("name").split("~")[1];
+            final Promise<Void> promise = Promise.promise();
+            started.add(name);
+            running.put(name, promise);
+            return promise.future();
+        }
+
+        void complete(String name) {
+            running.remove(name).complete();
+        }
+
+        void fail(String name) {
+            running.remove(name).fail("failed");
+        }
+    }
+
+    @Test
+    public void testExecute_dependenciesAreDeployedFirst() {
+        // Given
+        final DeploymentPlan plan = DeploymentPlan.of(Arrays.asList(
+            service("b", "org.entcore.a"), service("a")));
+        final Recorder recorder = new Recorder();
+
+        // When
+        final Future<Void> result = plan.execute(0, recorder::deploy);
+
+        // Then
+        assertEquals(Arrays.asList("a"), recorder.started);
+        recorder.complete("a");
+        assertEquals(Arrays.asList("a", "b"), recorder.started);
+        recorder.complete("b");
+        assertTrue(result.succeeded());
+    }
+
+    @Test
+    public void testExecute_waitDeployIsABarrier() {
+        // Given
+        final DeploymentPlan plan = DeploymentPlan.of(Arrays.asList(
+            service("a"), service("b").put("waitDeploy", true), service("c"), service("d")));
+        final Recorder recorder = new Recorder();
+
+        // When
+        plan.execute(0, recorder::deploy);
+
+        // Then
+        assertEquals(2, recorder.started.size());
+        assertTrue(recorder.started.containsAll(Arrays.asList("a", "b")));
+        recorder.complete("b");
+        assertEquals(4, recorder.started.size());
+        assertTrue(recorder.started.containsAll(Arrays.asList("c", "d")));
+    }
+
+    @Test
+    public void testExecute_respectsParallelismAndStartsCriticalPathFirst() {
+        // Given
+        final DeploymentPlan plan = DeploymentPlan.of(Arrays.asList(
+            service("x"), service("y"), service("a"), service("b", "org.entcore.a"), service("c", "org.entcore.b")));
+        final Recorder recorder = new Recorder();
+
+        // When
+        plan.execute(1, recorder::deploy);
+
+        // Then
+        assertEquals(Arrays.asList("org.entcore.a", "org.entcore.b", "org.entcore.c"), plan.getCriticalPath());
+        assertEquals(Arrays.asList("a"), recorder.started);
+        recorder.complete("a");
+        assertEquals(Arrays.asList("a", "b"), recorder.started);
+    }
+
+    @Test
+    public void testExecute_failureSkipsDependents() {
+        // Given
+        final DeploymentPlan plan = DeploymentPlan.of(Arrays.asList(
+            service("a"), service("b", "org.entcore.a"), service("c")));
+        final Recorder recorder = new Recorder();
+
+        // When
+        final Future<Void> result = plan.execute(0, recorder::deploy);
+        recorder.fail("a");
+        recorder.complete("c");
+
+        // Then
+        assertFalse(recorder.started.contains("b"));
+        assertTrue(result.failed());
+    }
+
+    @Test
+    public void testExecute_skippedDependentsAreReported() {
+        // Given
+        final DeploymentPlan plan = DeploymentPlan.of(Arrays.asList(
+            service("a"), service("b", "org.entcore.a"), service("c", "org.entcore.b"), service("d")));
+        final Recorder recorder = new Recorder();
+        final Map<String, String> skipped = new LinkedHashMap<>();
+
+        // When
+        final Future<Void> result = plan.execute(0, recorder::deploy,
+            (service, failed) -> skipped.put(service.getString("name"), failed));
+        recorder.fail("a");
+        recorder.complete("d");
+
+        // Then
+        assertEquals(Arrays.asList("a", "d"), recorder.started);
+        assertEquals(Arrays.asList("org.entcore~b~1.0", "org.entcore~c~1.0"), new ArrayList<>(skipped.keySet()));
+        assertEquals("org.entcore.a", skipped.get("org.entcore~b~1.0"));
+        assertEquals("org.entcore.b", skipped.get("org.entcore~c~1.0"));
+        assertTrue(result.failed());
+    }
+
+    @Test
+    public void testExecute_cyclicDependenciesDoNotBlock() {
+        // Given
+        final DeploymentPlan plan = DeploymentPlan.of(Arrays.asList(
+            service("a", "org.entcore.b"), service("b", "org.entcore.a")));
+        final Recorder recorder = new Recorder();
+
+        // When
+        final Future<Void> result = plan.execute(0, recorder::deploy);
+        recorder.complete("a");
+        recorder.complete("b");
+
+        // Then
+        assertEquals(Arrays.asList("a", "b"), recorder.started);
+        assertTrue(result.succeeded());
+    }
+
+    @Test
+    public void testReverse_dependentsComeFirst() {
+        // Given
+        final DeploymentPlan plan = DeploymentPlan.of(Arrays.asList(
+            service("a"), service("b", "org.entcore.a"), service("c"))).reverse();
+        final Recorder recorder = new Recorder();
+
+        // When
+        plan.execute(0, recorder::deploy);
+
+        // Then
+        assertEquals(Arrays.asList("b", "c"), recorder.started);
+        recorder.complete("b");
+        assertEquals(Arrays.asList("b", "c", "a"), recorder.started);
+    }
+}
@@ -0,0 +1,139 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import com.opendigitaleducation.launcher.config.ConfigChangeEvent;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class DeploymentSchedulerTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private static JsonObject service(String name) {
+        return new JsonObject().put("name", "org.entcore~" + name);
+    }
+
+    private static List<String> names(List<JsonObject> services) {
+        return services.stream().map(s -> s.getString("name")).collect(Collectors.toList());
+    }
+
+    private static class TestEvent extends ConfigChangeEvent {
+        private final List<JsonObject> undeploy;
+        private final List<JsonObject> deploy;
+        private final List<JsonObject> restart;
+
+        TestEvent(List<JsonObject> undeploy, List<JsonObject> deploy, List<JsonObject> restart) {
+            this.undeploy = undeploy;
+            this.deploy = deploy;
+            this.restart = restart;
+        }
+
+        @Override
+        public JsonObject getDump() {
+            return new JsonObject().put("services", new JsonArray(new ArrayList<>(deploy)));
+        }
+
+        @Override
+        public List<JsonObject> getServicesToRestart() {
+            return restart;
+        }
+
+        @Override
+        public List<JsonObject> getServicesToUndeploy() {
+            return undeploy;
+        }
+
+        @Override
+        public List<JsonObject> getServicesToDeploy() {
+            return deploy;
+        }
+    }
+
+    @Test
+    public void testMerge_redeploysOfTheSameModuleAreCoalesced() {
+        // Given
+        final DeploymentScheduler.MergedEvent merged = new DeploymentScheduler.MergedEvent();
+
+        // When
+        merged.merge(new TestEvent(Arrays.asList(service("auth~1.0")), Arrays.asList(service("auth~1.1")),
+            Collections.emptyList()), true);
+        merged.merge(new TestEvent(Arrays.asList(service("auth~1.1")), Arrays.asList(service("auth~1.2")),
+            Collections.emptyList()), true);
+        merged.merge(new TestEvent(Collections.emptyList(), Collections.emptyList(),
+            Arrays.asList(service("auth~1.2"), service("portal~1.0"))), false);
+
+        // Then
+        assertEquals(Arrays.asList("org.entcore~auth~1.0"), names(merged.getServicesToUndeploy()));
+        assertEquals(Arrays.asList("org.entcore~auth~1.2"), names(merged.getServicesToDeploy()));
+        assertEquals(Arrays.asList("org.entcore~portal~1.0"), names(merged.getServicesToRestart()));
+        assertTrue(names(merged.getServicesToClean()).contains("org.entcore~auth~1.0"));
+    }
+
+    @Test
+    public void testMerge_deployThenUndeployCancelEachOther() {
+        // Given
+        final DeploymentScheduler.MergedEvent merged = new DeploymentScheduler.MergedEvent();
+
+        // When
+        merged.merge(new TestEvent(Collections.emptyList(), Arrays.asList(service("auth~1.0")),
+            Collections.emptyList()), false);
+        merged.merge(new TestEvent(Arrays.asList(service("auth~1.0")), Collections.emptyList(),
+            Collections.emptyList()), false);
+
+        // Then
+        assertFalse(merged.hasPendingTasks());
+    }
+
+    @Test
+    public void testExecute_tasksNeverOverlap(TestContext context) {
+        // Given
+        final DeploymentScheduler scheduler = new DeploymentScheduler(vertx, null, new JsonObject());
+        final Promise<Void> first = Promise.promise();
+        final List<String> started = new ArrayList<>();
+        final Async async = context.async();
+
+        // When
+        scheduler.execute(() -> {
+            started.add("first");
+            return first.future();
+        });
+        scheduler.execute(() -> {
+            started.add("second");
+            return Future.succeededFuture();
+        }).onComplete(context.asyncAssertSuccess(v -> {
+            // Then
+            context.assertEquals(Arrays.asList("first", "second"), started);
+            async.complete();
+        }));
+        context.assertEquals(Arrays.asList("first"), started);
+        first.complete();
+    }
+}
@@ -0,0 +1,27 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import com.opendigitaleducation.launcher.deployer.DeploymentTimeline.Phase;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DeploymentTimelineTest {
+
+    @Test
+    public void testBegin_shouldKeepOnlyLatestVersionOfModule() {
+        // Given
+        DeploymentTimeline.begin("org.test~timeline~1.0");
+        DeploymentTimeline.mark("org.test~timeline~1.0", Phase.Start);
+        DeploymentTimeline.end("org.test~timeline~1.0", true);
+
+        // When
+        DeploymentTimeline.begin("org.test~timeline~2.0");
+        final JsonObject ended = DeploymentTimeline.end("org.test~timeline~2.0", false);
+
+        // Then
+        assertNull(DeploymentTimeline.get("org.test~timeline~1.0"));
+        assertEquals(ended, DeploymentTimeline.get("org.test~timeline~2.0"));
+        assertFalse(ended.getBoolean("success"));
+    }
+}
@@ -0,0 +1,157 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import static com.opendigitaleducation.launcher.FolderServiceFactory.FACTORY_PREFIX;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Promise;
+import io.vertx.core.Verticle;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.spi.VerticleFactory;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class ModuleAutoscalerTest {
+    private static final String MODULE = "org.test~app~1.0";
+    private static final String ADDRESS = "test.app";
+
+    private Vertx vertx;
+    private SimpleMeterRegistry registry;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Deploys an empty verticle in place of the module.
+     */
+    private static class StubFactory implements VerticleFactory {
+        @Override
+        public String prefix() {
+            return FACTORY_PREFIX;
+        }
+
+        @Override
+        public void createVerticle(String verticleName, ClassLoader classLoader, Promise<Callable<Verticle>> promise) {
+            promise.complete(() -> new AbstractVerticle() {});
+        }
+    }
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        for (final VerticleFactory factory : new ArrayList<>(vertx.verticleFactories())) {
+            vertx.unregisterVerticleFactory(factory);
+        }
+        vertx.registerVerticleFactory(new StubFactory());
+        registry = new SimpleMeterRegistry();
+        Gauge.builder("vertx.eventbus.pending", pending, AtomicInteger::get).tag("address", ADDRESS)
+            .register(registry);
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private ModuleAutoscaler autoscaler(long cooldown) {
+        final ModuleAutoscaler autoscaler = new ModuleAutoscaler(vertx,
+            new JsonObject().put("autoscaleInterval", 3600000L).put("autoscaleCooldown", cooldown));
+        autoscaler.register(MODULE, new JsonObject().put("min", 1).put("max", 3).put("scaleUpPending", 10),
+            new DeploymentOptions().setConfig(new JsonObject().put("address", ADDRESS)));
+        return autoscaler;
+    }
+
+    private void await(BooleanSupplier condition, Runnable then) {
+        if (condition.getAsBoolean()) {
+            then.run();
+        } else {
+            vertx.setTimer(10, id -> await(condition, then));
+        }
+    }
+
+    @Test
+    public void testSample_shouldScaleUpToMax() {
+        // Given
+        final ModuleAutoscaler autoscaler = autoscaler(0L);
+        pending.set(50);
+
+        // When
+        autoscaler.sample(registry);
+        autoscaler.sample(registry);
+        autoscaler.sample(registry);
+
+        // Then : 50 pending messages stay above 10 per instance up to the max
+        assertEquals(3, autoscaler.instances(MODULE));
+    }
+
+    @Test
+    public void testSample_shouldScaleDownExtraInstances(TestContext context) {
+        // Given
+        final ModuleAutoscaler autoscaler = autoscaler(0L);
+        final Async async = context.async();
+        pending.set(50);
+        autoscaler.sample(registry);
+        autoscaler.sample(registry);
+        await(() -> vertx.deploymentIDs().size() == 2, () -> {
+            pending.set(0);
+
+            // When
+            autoscaler.sample(registry);
+            autoscaler.sample(registry);
+            autoscaler.sample(registry);
+
+            // Then : the extra instances are undeployed down to the min
+            assertEquals(1, autoscaler.instances(MODULE));
+            await(() -> vertx.deploymentIDs().isEmpty(), async::complete);
+        });
+    }
+
+    @Test
+    public void testSample_shouldWaitForCooldown() {
+        // Given
+        final ModuleAutoscaler autoscaler = autoscaler(60000L);
+        pending.set(50);
+
+        // When
+        autoscaler.sample(registry);
+        autoscaler.sample(registry);
+
+        // Then : the second change is delayed by the cooldown
+        assertEquals(2, autoscaler.instances(MODULE));
+    }
+
+    @Test
+    public void testUnregister_shouldUndeployExtraInstances(TestContext context) {
+        // Given
+        final ModuleAutoscaler autoscaler = autoscaler(0L);
+        final Async async = context.async();
+        pending.set(50);
+        autoscaler.sample(registry);
+        await(() -> vertx.deploymentIDs().size() == 1, () -> {
+            // a second extra instance is still being deployed
+            autoscaler.sample(registry);
+
+            // When
+            autoscaler.unregister(MODULE).onComplete(context.asyncAssertSuccess(v -> {
+                // Then
+                assertEquals(0, autoscaler.instances(MODULE));
+                assertTrue(vertx.deploymentIDs().isEmpty());
+                async.complete();
+            }));
+        });
+    }
+}
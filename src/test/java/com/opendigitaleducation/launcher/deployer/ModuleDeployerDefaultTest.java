@@ -0,0 +1,146 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class ModuleDeployerDefaultTest {
+    private static final String MODULE = "org.test~slow~1.0";
+    private static final String ADDRESS = "test.slow";
+    private static final String VERTICLE = "package sample;\n" +
+        "public class SlowVerticle extends io.vertx.core.AbstractVerticle {\n" +
+        "  @Override\n" +
+        "  public void start() {\n" +
+        "    vertx.eventBus().consumer(config().getString(\"address\"), message -> vertx.setTimer(\n" +
+        "      Long.parseLong(message.body().toString()), id -> message.reply(deploymentID())));\n" +
+        "  }\n" +
+        "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+    private String previousServicesPath;
+
+    @Before
+    public void setUp() throws Exception {
+        final String servicesPath = folder.newFolder("services").getAbsolutePath();
+        previousServicesPath = System.getProperty("vertx.services.path");
+        System.setProperty("vertx.services.path", servicesPath);
+        vertx = Vertx.vertx();
+        module(compile(), servicesPath);
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        if (previousServicesPath == null) {
+            System.clearProperty("vertx.services.path");
+        } else {
+            System.setProperty("vertx.services.path", previousServicesPath);
+        }
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private Path compile() throws Exception {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeNotNull(compiler);
+        final Path sources = folder.newFolder("sources").toPath();
+        final Path classes = folder.newFolder("classes").toPath();
+        Files.createDirectories(sources.resolve("sample"));
+        Files.write(sources.resolve("sample/SlowVerticle.java"), VERTICLE.getBytes(StandardCharsets.UTF_8));
+        final String classPath = Paths.get(Vertx.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+            + File.pathSeparator + System.getProperty("java.class.path");
+        assertEquals(0, compiler.run(null, null, null, "-nowarn", "-d", classes.toString(), "-cp", classPath,
+            sources.resolve("sample/SlowVerticle.java").toString()));
+        return classes;
+    }
+
+    private static void module(Path classes, String servicesPath) throws Exception {
+        final Path root = Paths.get(servicesPath, MODULE);
+        try (Stream<Path> files = Files.walk(classes)) {
+            for (final Path file : (Iterable<Path>) files::iterator) {
+                final Path target = root.resolve(classes.relativize(file).toString());
+                if (Files.isDirectory(file)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(file, target);
+                }
+            }
+        }
+        Files.createDirectories(root.resolve("META-INF"));
+        Files.write(root.resolve("META-INF/MANIFEST.MF"), ("Manifest-Version: 1.0\nMain-Verticle: service:" +
+            MODULE + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve(MODULE + ".json"),
+            new JsonObject().put("main", "sample.SlowVerticle").encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static JsonObject service() {
+        return new JsonObject().put("name", MODULE).put("config", new JsonObject().put("address", ADDRESS));
+    }
+
+    @Test
+    public void testBlueGreenRestart_shouldDrainPreviousInstance(TestContext context) {
+        // Given
+        final ModuleDeployerDefault deployer = new ModuleDeployerDefault(vertx,
+            new JsonObject().put("restartStrategy", ModuleDeployerDefault.BLUE_GREEN).put("drainTimeout", 3000L));
+        final LocalMap<String, String> deploymentIds = vertx.sharedData().getLocalMap("deploymentsId");
+        final Async async = context.async(2);
+        deployer.deploy(service()).onComplete(context.asyncAssertSuccess(v -> {
+            final String blue = deploymentIds.get(MODULE);
+
+            // When
+            vertx.eventBus().<String>request(ADDRESS, "500", new DeliveryOptions().setSendTimeout(5000L))
+                .onComplete(context.asyncAssertSuccess(reply -> {
+                    // Then : the request received by the previous instance is not cut off by the restart
+                    assertNotNull(reply.body());
+                    async.countDown();
+                }));
+            vertx.setTimer(50, t -> deployer.restart(service()).onComplete(context.asyncAssertSuccess(r -> {
+                final String green = deploymentIds.get(MODULE);
+                assertNotEquals(blue, green);
+                assertTrue(vertx.deploymentIDs().contains(green));
+                assertFalse(vertx.deploymentIDs().contains(blue));
+                async.countDown();
+            })));
+        }));
+    }
+
+    @Test
+    public void testBlueGreenRestart_shouldDeployModuleNotDeployed(TestContext context) {
+        // Given
+        final ModuleDeployerDefault deployer = new ModuleDeployerDefault(vertx,
+            new JsonObject().put("restartStrategy", ModuleDeployerDefault.BLUE_GREEN));
+        final LocalMap<String, String> deploymentIds = vertx.sharedData().getLocalMap("deploymentsId");
+        final Async async = context.async();
+
+        // When
+        deployer.restart(service()).onComplete(context.asyncAssertSuccess(v -> {
+            // Then
+            assertTrue(vertx.deploymentIDs().contains(deploymentIds.get(MODULE)));
+            vertx.eventBus().request(ADDRESS, "1").onComplete(context.asyncAssertSuccess(r -> async.complete()));
+        }));
+    }
+}
@@ -0,0 +1,157 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class ModuleDeployerLazyTest {
+    private static final String ADDRESS = "test.lazy";
+
+    private Vertx vertx;
+    private final List<JsonObject> deployed = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private static JsonObject service(JsonObject config) {
+        return new JsonObject().put("name", "org.entcore~lazy~1.0").put("lazy", true)
+            .put("config", config.put("address", ADDRESS));
+    }
+
+    /**
+     * Deployer whose modules reply with their greeting, after a slow start.
+     */
+    private ModuleDeployer deployer(boolean fail) {
+        return new ModuleDeployer() {
+            @Override
+            public Future<Void> deploy(JsonObject service) {
+                deployed.add(service);
+                final Promise<Void> promise = Promise.promise();
+                vertx.setTimer(100, id -> {
+                    if (fail) {
+                        promise.fail("broken");
+                        return;
+                    }
+                    final String greeting = service.getJsonObject("config").getString("greeting", "hello");
+                    vertx.eventBus().<String>consumer(service.getJsonObject("config").getString("address"),
+                        m -> m.reply(greeting + " " + m.body())).completionHandler(promise);
+                });
+                return promise.future();
+            }
+
+            @Override
+            public Future<Void> undeploy(JsonObject service) {
+                return Future.succeededFuture();
+            }
+
+            @Override
+            public Future<Void> restart(JsonObject service) {
+                return Future.succeededFuture();
+            }
+
+            @Override
+            public Future<Void> init() {
+                return Future.succeededFuture();
+            }
+
+            @Override
+            public Future<Void> clean(JsonObject service) {
+                return Future.succeededFuture();
+            }
+        };
+    }
+
+    @Test
+    public void testActivation_shouldReplayBufferedMessages(TestContext context) {
+        // Given
+        final ModuleDeployer deployer = new ModuleDeployerLazy(new JsonObject(), deployer(false), vertx);
+        final Async async = context.async();
+
+        // When
+        deployer.deploy(service(new JsonObject())).compose(v -> {
+            assertTrue(deployed.isEmpty());
+            final List<Future<String>> replies = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                replies.add(vertx.eventBus().<String>request(ADDRESS, "message " + i).map(m -> m.body()));
+            }
+            return Future.all(replies);
+        }).onComplete(context.asyncAssertSuccess(replies -> {
+            // Then
+            assertEquals(1, deployed.size());
+            for (int i = 0; i < 3; i++) {
+                assertEquals("hello message " + i, replies.resultAt(i));
+            }
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testActivation_shouldFailBufferedMessagesWhenDeploymentFails(TestContext context) {
+        // Given
+        final ModuleDeployer deployer = new ModuleDeployerLazy(new JsonObject(), deployer(true), vertx);
+        final Async async = context.async();
+
+        // When
+        deployer.deploy(service(new JsonObject())).compose(v -> vertx.eventBus().request(ADDRESS, "message"))
+            .onComplete(context.asyncAssertFailure(e -> {
+                // Then
+                assertEquals(ModuleDeployerLazy.ACTIVATION_FAILURE_CODE, ((ReplyException) e).failureCode());
+                async.complete();
+            }));
+    }
+
+    @Test
+    public void testRestart_shouldActivateWithNewConfiguration(TestContext context) {
+        // Given
+        final ModuleDeployer deployer = new ModuleDeployerLazy(new JsonObject(), deployer(false), vertx);
+        final Async async = context.async();
+
+        // When
+        deployer.deploy(service(new JsonObject().put("greeting", "hello")))
+            .compose(v -> deployer.restart(service(new JsonObject().put("greeting", "bonjour"))))
+            .compose(v -> vertx.eventBus().<String>request(ADDRESS, "message"))
+            .onComplete(context.asyncAssertSuccess(reply -> {
+                // Then
+                assertEquals("bonjour message", reply.body());
+                assertEquals(1, deployed.size());
+                async.complete();
+            }));
+    }
+
+    @Test
+    public void testDeploy_httpServiceShouldBeDeployedAtOnce(TestContext context) {
+        // Given
+        final ModuleDeployer deployer = new ModuleDeployerLazy(new JsonObject(), deployer(false), vertx);
+        final Async async = context.async();
+
+        // When
+        deployer.deploy(service(new JsonObject().put("port", 8090))).onComplete(context.asyncAssertSuccess(v -> {
+            // Then
+            assertEquals(1, deployed.size());
+            async.complete();
+        }));
+    }
+}
@@ -0,0 +1,117 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ModuleDeployerPlannerTest {
+
+    private static JsonObject service(String name) {
+        return new JsonObject().put("name", name);
+    }
+
+    /**
+     * Deployer recording the started actions and letting the test complete them one by one.
+     */
+    private static class Recorder implements ModuleDeployer {
+        final Map<String, Promise<Void>> running = new LinkedHashMap<>();
+        final List<String> started = new ArrayList<>();
+
+        private Future<Void> start(String action, JsonObject service) {
+            final String name = action + " " + service.getString("name");
+            final Promise<Void> promise = Promise.promise();
+            started.add(name);
+            running.put(name, promise);
+            return promise.future();
+        }
+
+        void complete(String name) {
+            running.remove(name).complete();
+        }
+
+        void fail(String name) {
+            running.remove(name).fail("failed");
+        }
+
+        @Override
+        public Future<Void> deploy(JsonObject service) {
+            return start("deploy", service);
+        }
+
+        @Override
+        public Future<Void> undeploy(JsonObject service) {
+            return start("undeploy", service);
+        }
+
+        @Override
+        public Future<Void> restart(JsonObject service) {
+            return start("restart", service);
+        }
+
+        @Override
+        public Future<Void> init() {
+            return Future.succeededFuture();
+        }
+
+        @Override
+        public Future<Void> clean(JsonObject service) {
+            return Future.succeededFuture();
+        }
+    }
+
+    @Test
+    public void testExclusive_actionsOnSameModuleNeverOverlap() {
+        // Given
+        final Recorder recorder = new Recorder();
+        final ModuleDeployerPlanner planner = new ModuleDeployerPlanner(new JsonObject(), recorder, null);
+
+        // When
+        final Future<Void> undeployed = planner.undeploy(service("org.entcore~app~1.0"));
+        final Future<Void> deployed = planner.deploy(service("org.entcore~app~2.0"));
+        final Future<Void> restarted = planner.restart(service("org.entcore~app~2.0"));
+        final Future<Void> auth = planner.deploy(service("org.entcore~auth~1.0"));
+
+        // Then
+        assertEquals(Arrays.asList("undeploy org.entcore~app~1.0", "deploy org.entcore~auth~1.0"), recorder.started);
+        recorder.complete("deploy org.entcore~auth~1.0");
+        assertTrue(auth.succeeded());
+        assertEquals(2, recorder.started.size());
+        recorder.fail("undeploy org.entcore~app~1.0");
+        assertTrue(undeployed.failed());
+        // a failed action still releases the module
+        assertEquals(Arrays.asList("undeploy org.entcore~app~1.0", "deploy org.entcore~auth~1.0",
+            "deploy org.entcore~app~2.0"), recorder.started);
+        recorder.complete("deploy org.entcore~app~2.0");
+        assertTrue(deployed.succeeded());
+        assertEquals("restart org.entcore~app~2.0", recorder.started.get(3));
+        recorder.complete("restart org.entcore~app~2.0");
+        assertTrue(restarted.succeeded());
+    }
+
+    @Test
+    public void testExclusive_unrelatedModulesRunInParallel() {
+        // Given
+        final Recorder recorder = new Recorder();
+        final ModuleDeployerPlanner planner = new ModuleDeployerPlanner(
+            new JsonObject().put("deployParallelism", 4), recorder, null);
+
+        // When
+        planner.restartAll(Arrays.asList(service("org.entcore~auth~1.0"), service("org.entcore~app~1.0"),
+            service("org.entcore~conversation~1.0")));
+        planner.deploy(service("fr.wseduc~app~1.0"));
+
+        // Then
+        assertEquals(4, recorder.running.size());
+        assertTrue(recorder.started.containsAll(Arrays.asList("restart org.entcore~auth~1.0",
+            "restart org.entcore~app~1.0", "restart org.entcore~conversation~1.0", "deploy fr.wseduc~app~1.0")));
+    }
+}
@@ -0,0 +1,133 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.net.ConnectException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class ModuleDeployerRetryTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private static JsonObject service() {
+        return new JsonObject().put("name", "org.entcore~app~1.0");
+    }
+
+    /**
+     * Deployer failing the first deployments with the given failure.
+     */
+    private static ModuleDeployer failing(int failures, Throwable failure, AtomicInteger attempts) {
+        return new ModuleDeployer() {
+            @Override
+            public Future<Void> deploy(JsonObject service) {
+                return attempts.incrementAndGet() <= failures ? Future.failedFuture(failure) : Future.succeededFuture();
+            }
+
+            @Override
+            public Future<Void> undeploy(JsonObject service) {
+                return Future.succeededFuture();
+            }
+
+            @Override
+            public Future<Void> restart(JsonObject service) {
+                return Future.succeededFuture();
+            }
+
+            @Override
+            public Future<Void> init() {
+                return Future.succeededFuture();
+            }
+
+            @Override
+            public Future<Void> clean(JsonObject service) {
+                return Future.succeededFuture();
+            }
+        };
+    }
+
+    @Test
+    public void testDeploy_shouldRetryTransientFailures(TestContext context) {
+        // Given
+        final AtomicInteger attempts = new AtomicInteger();
+        final ModuleDeployer deployer = new ModuleDeployerRetry(new JsonObject().put("retryDelay", 10),
+                failing(2, new ConnectException("Connection refused"), attempts), vertx);
+
+        // When
+        final Async async = context.async();
+        deployer.deploy(service()).onComplete(context.asyncAssertSuccess(v -> {
+            // Then
+            assertEquals(3, attempts.get());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testDeploy_shouldNotRetryPermanentFailures(TestContext context) {
+        // Given
+        final AtomicInteger attempts = new AtomicInteger();
+        final ModuleDeployer deployer = new ModuleDeployerRetry(new JsonObject().put("retryDelay", 10),
+                failing(2, new ClassNotFoundException("org.entcore.App"), attempts), vertx);
+
+        // When
+        final Async async = context.async();
+        deployer.deploy(service()).onComplete(context.asyncAssertFailure(e -> {
+            // Then
+            assertEquals(1, attempts.get());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testDeploy_shouldStopWhenBudgetIsSpent(TestContext context) {
+        // Given
+        final AtomicInteger attempts = new AtomicInteger();
+        final ModuleDeployer deployer = new ModuleDeployerRetry(new JsonObject().put("retryDelay", 10)
+                .put("maxRetry", 10).put("retryBudget", 2), failing(10, new ConnectException("refused"), attempts), vertx);
+
+        // When
+        final Async async = context.async();
+        deployer.deploy(service()).onComplete(context.asyncAssertFailure(e -> {
+            // Then
+            assertEquals(3, attempts.get());
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testDelay_shouldGrowExponentiallyUpToMax() {
+        final ModuleDeployerRetry deployer = new ModuleDeployerRetry(new JsonObject().put("retryDelay", 100)
+                .put("retryMaxDelay", 1000), failing(0, null, new AtomicInteger()), vertx);
+        for (int i = 0; i < 20; i++) {
+            final long first = deployer.delay(1);
+            final long third = deployer.delay(3);
+            final long tenth = deployer.delay(10);
+            assertTrue(first >= 50 && first <= 100);
+            assertTrue(third >= 200 && third <= 400);
+            assertTrue(tenth >= 500 && tenth <= 1000);
+        }
+        assertTrue(ModuleDeployerRetry.isPermanent(new RuntimeException(new NoClassDefFoundError("x"))));
+        assertFalse(ModuleDeployerRetry.isPermanent(new RuntimeException("Failed to download service: 502")));
+    }
+}
@@ -0,0 +1,30 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ModuleDescriptorTest {
+
+    @Test
+    public void testParse_shouldReadMainAttributes() throws Exception {
+        // Given
+        final String manifest = "Manifest-Version: 1.0\r\n" +
+                "Main-Verticle: service:org.entcore~auth~4.1\r\n" +
+                "Implementation-Version: 4.1-SNAPSHOT\r\n" +
+                "SCM-Branch: feature/a-very-long-branch-name-which-is-wrapped-by-the-jar-tool-over-s\r\n" +
+                " everal-lines\r\n\r\n";
+
+        // When
+        final ModuleDescriptor descriptor = ModuleDescriptor.parse(manifest.getBytes(StandardCharsets.UTF_8), null);
+
+        // Then
+        assertEquals("service:org.entcore~auth~4.1", descriptor.getMainVerticle());
+        assertEquals("4.1-SNAPSHOT", descriptor.getVersion());
+        assertEquals("feature/a-very-long-branch-name-which-is-wrapped-by-the-jar-tool-over-several-lines",
+                descriptor.getAttribute("SCM-Branch"));
+        assertNull(descriptor.getAttribute("Build-Time"));
+    }
+}
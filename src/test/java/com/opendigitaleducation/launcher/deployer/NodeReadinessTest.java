@@ -0,0 +1,76 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class NodeReadinessTest {
+
+    private static JsonObject service(String name, double priority) {
+        return new JsonObject().put("name", name).put("priority", priority);
+    }
+
+    @Test
+    public void testReady_whenTierServicesDeployed() {
+        // Given
+        final NodeReadiness readiness = NodeReadiness.init(null, new JsonObject()
+            .put("readinessGating", true).put("readinessTier", 10));
+        readiness.expect(Arrays.asList(service("org.entcore~auth~1.0", 1), service("org.entcore~app~1.0", 50),
+                service("org.entcore~lazy~1.0", 1).put("lazy", true)));
+
+        // When
+        readiness.deployed("org.entcore~app~1.0");
+        final boolean readyBefore = readiness.isReady();
+        readiness.deployed("org.entcore~auth~1.0");
+
+        // Then
+        assertFalse(readyBefore);
+        assertTrue(readiness.isReady());
+        assertTrue(readiness.ready().succeeded());
+    }
+
+    @Test
+    public void testReady_whenPlanEndedWithFailures() {
+        // Given
+        final NodeReadiness readiness = NodeReadiness.init(null, new JsonObject().put("readinessGating", true));
+        readiness.expect(Arrays.asList(service("org.entcore~auth~1.0", 1), service("org.entcore~app~1.0", 50)));
+        readiness.deployed("org.entcore~auth~1.0");
+        assertEquals(1, readiness.toJson().getJsonArray("pending").size());
+
+        // When
+        readiness.release();
+
+        // Then
+        assertTrue(readiness.isReady());
+        assertEquals(0, readiness.toJson().getJsonArray("pending").size());
+    }
+
+    @Test
+    public void testReady_whenGatingDisabled() {
+        assertTrue(NodeReadiness.init(null, new JsonObject()).isReady());
+        assertTrue(NodeReadiness.init(null, new JsonObject().put("readinessGating", false)).isReady());
+    }
+
+    @Test
+    public void testReady_afterTimeoutWhenPlanNeverStarted() throws Exception {
+        // Given
+        final Vertx vertx = Vertx.vertx();
+        try {
+            // When
+            final NodeReadiness readiness = NodeReadiness.init(vertx, new JsonObject()
+                .put("readinessGating", true).put("readinessTimeout", 50L));
+
+            // Then
+            assertFalse(readiness.isReady());
+            readiness.ready().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            assertTrue(readiness.isReady());
+        } finally {
+            vertx.close();
+        }
+    }
+}
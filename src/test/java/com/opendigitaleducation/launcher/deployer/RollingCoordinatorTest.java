@@ -0,0 +1,124 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+import com.opendigitaleducation.launcher.discovery.impl.NopServiceDiscovery;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class RollingCoordinatorTest {
+    private static final String MODULE = "org.entcore.auth";
+    private static final String NODE = "node-1";
+
+    private Vertx vertx;
+    private final List<ServiceInfo> instances = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        instances.add(instance());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private static ServiceInfo instance() {
+        return new ServiceInfo("org.entcore~auth~1.0", "vertx.auth", "127.0.0.1", 8090, "/auth", NODE, true, false, null);
+    }
+
+    private RollingCoordinator coordinator(long timeout) {
+        return new RollingCoordinator(vertx, new NopServiceDiscovery() {
+            @Override
+            public Future<List<ServiceInfo>> getServiceInfos(String service) {
+                return Future.succeededFuture(new ArrayList<>(instances));
+            }
+        }, NODE, new JsonObject().put("rollingMaxParallel", 1).put("rollingTimeout", timeout).put("rollingSettleTime", 0L));
+    }
+
+    private Future<Boolean> isSlotFree() {
+        return vertx.sharedData().getLockWithTimeout("rolling." + MODULE + ".0", 10)
+            .map(lock -> {
+                lock.release();
+                return true;
+            }).otherwise(false);
+    }
+
+    @Test
+    public void testRun_shouldReleaseSlotOnceInstanceIsRegisteredAgain(TestContext context) {
+        // Given
+        final RollingCoordinator coordinator = coordinator(5000L);
+        final Async async = context.async();
+
+        // When
+        coordinator.run(MODULE, () -> {
+            // the instance is unregistered by the undeployment and registered again later
+            instances.clear();
+            vertx.setTimer(200, id -> instances.add(instance()));
+            return Future.succeededFuture("deployed");
+        }).compose(res -> {
+            // Then
+            assertEquals("deployed", res);
+            assertFalse(instances.isEmpty());
+            return isSlotFree();
+        }).onComplete(context.asyncAssertSuccess(free -> {
+            assertTrue(free);
+            assertFalse(coordinator.isSlotKept(MODULE));
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testRun_shouldKeepSlotUntilNextSuccessfulRedeployment(TestContext context) {
+        // Given
+        final RollingCoordinator coordinator = coordinator(5000L);
+        final Async async = context.async();
+
+        // When
+        coordinator.run(MODULE, () -> Future.failedFuture("broken version")).transform(res -> {
+            // Then
+            assertTrue(res.failed());
+            assertTrue(coordinator.isSlotKept(MODULE));
+            return isSlotFree();
+        }).compose(free -> {
+            assertFalse(free);
+            return coordinator.run(MODULE, () -> Future.succeededFuture("fixed"));
+        }).compose(res -> isSlotFree()).onComplete(context.asyncAssertSuccess(free -> {
+            assertTrue(free);
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testRun_shouldKeepSlotWhenInstanceIsNotRegisteredInTime(TestContext context) {
+        // Given
+        final RollingCoordinator coordinator = coordinator(100L);
+        final Async async = context.async();
+
+        // When
+        coordinator.run(MODULE, () -> {
+            instances.clear();
+            return Future.succeededFuture();
+        }).onComplete(context.asyncAssertFailure(e -> {
+            // Then
+            assertTrue(e.getMessage().contains("not registered"));
+            assertTrue(coordinator.isSlotKept(MODULE));
+            async.complete();
+        }));
+    }
+}
@@ -0,0 +1,160 @@
+package com.opendigitaleducation.launcher.deployer;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class VersionRegistryTest {
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testFlush_shouldCoalesceUpdatesPerModule(TestContext context) {
+        // Given
+        final VersionRegistry registry = new VersionRegistry(vertx, 60000L);
+        final Async async = context.async();
+        Future.all(vertx.sharedData().<String, String>getAsyncMap("versions"),
+                vertx.sharedData().<String, JsonObject>getAsyncMap("detailedVersions")).compose(maps -> {
+            final AsyncMap<String, String> versions = maps.resultAt(0);
+            return registry.init(versions, maps.resultAt(1)).compose(v -> {
+                // When
+                registry.put("org.entcore.app", "1.0", new JsonObject().put("version", "1.0"));
+                registry.remove("org.entcore.app");
+                registry.put("org.entcore.app", "2.0", new JsonObject().put("version", "2.0"));
+                registry.put("org.entcore.old", "1.0", new JsonObject().put("version", "1.0"));
+                registry.remove("org.entcore.old");
+                // local view is updated synchronously, cluster view on flush
+                assertEquals("2.0", vertx.sharedData().<String, String>getLocalMap("versions").get("org.entcore.app"));
+                return versions.get("org.entcore.app").compose(before -> {
+                    assertNull(before);
+                    return registry.flush();
+                });
+            }).compose(v -> Future.all(versions.get("org.entcore.app"), versions.get("org.entcore.old")));
+        }).onComplete(context.asyncAssertSuccess(res -> {
+            // Then
+            assertEquals("2.0", res.resultAt(0));
+            assertNull(res.resultAt(1));
+            async.complete();
+        }));
+    }
+
+    /**
+     * Map whose first puts are held by the test, which fails them by completing the returned promises.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> AsyncMap<String, V> heldPuts(AsyncMap<String, V> map, List<Promise<Void>> held, int count) {
+        return (AsyncMap<String, V>) Proxy.newProxyInstance(AsyncMap.class.getClassLoader(),
+            new Class<?>[] { AsyncMap.class }, (proxy, method, args) -> {
+                if ("put".equals(method.getName()) && args.length == 2 && held.size() < count) {
+                    final Promise<Void> promise = Promise.promise();
+                    held.add(promise);
+                    return promise.future();
+                }
+                try {
+                    return method.invoke(map, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    @Test
+    public void testFlush_shouldRetryFailedWrites(TestContext context) {
+        // Given
+        final VersionRegistry registry = new VersionRegistry(vertx, 10L);
+        final List<Promise<Void>> held = new ArrayList<>();
+        final Async async = context.async();
+        Future.all(vertx.sharedData().<String, String>getAsyncMap("versions"),
+                vertx.sharedData().<String, JsonObject>getAsyncMap("detailedVersions")).compose(maps -> {
+            final AsyncMap<String, String> versions = maps.resultAt(0);
+            return registry.init(heldPuts(versions, held, 1), maps.resultAt(1)).compose(v -> {
+                registry.put("org.entcore.app", "1.0", new JsonObject().put("version", "1.0"));
+                final Future<Void> flushed = registry.flush();
+
+                // When
+                held.get(0).fail("cluster unavailable");
+                return flushed.transform(ar -> {
+                    assertTrue(ar.failed());
+                    return retried(versions, "org.entcore.app");
+                });
+            });
+        }).onComplete(context.asyncAssertSuccess(version -> {
+            // Then
+            assertEquals("1.0", version);
+            async.complete();
+        }));
+    }
+
+    @Test
+    public void testFlush_shouldNotRetrySupersededWrites(TestContext context) {
+        // Given
+        final VersionRegistry registry = new VersionRegistry(vertx, 10L);
+        final List<Promise<Void>> held = new ArrayList<>();
+        final Async async = context.async();
+        Future.all(vertx.sharedData().<String, String>getAsyncMap("versions"),
+                vertx.sharedData().<String, JsonObject>getAsyncMap("detailedVersions")).compose(maps -> {
+            final AsyncMap<String, String> versions = maps.resultAt(0);
+            return registry.init(heldPuts(versions, held, 1), maps.resultAt(1)).compose(v -> {
+                registry.put("org.entcore.app", "1.0", new JsonObject().put("version", "1.0"));
+                final Future<Void> first = registry.flush();
+                registry.put("org.entcore.app", "2.0", new JsonObject().put("version", "2.0"));
+                return registry.flush().compose(f -> {
+                    // When : the write of 1.0 fails after the one of 2.0
+                    held.get(0).fail("cluster unavailable");
+                    return first.transform(ar -> {
+                        assertTrue(ar.failed());
+                        final Promise<String> later = Promise.promise();
+                        vertx.setTimer(100L, t -> versions.get("org.entcore.app").onComplete(later));
+                        return later.future();
+                    });
+                });
+            });
+        }).onComplete(context.asyncAssertSuccess(version -> {
+            // Then
+            assertEquals("2.0", version);
+            async.complete();
+        }));
+    }
+
+    private Future<String> retried(AsyncMap<String, String> versions, String key) {
+        final Promise<String> promise = Promise.promise();
+        final long timerId = vertx.setPeriodic(10L, t -> versions.get(key).onSuccess(value -> {
+            if (value != null) {
+                vertx.cancelTimer(t);
+                promise.tryComplete(value);
+            }
+        }));
+        vertx.setTimer(5000L, t -> {
+            vertx.cancelTimer(timerId);
+            promise.tryFail("write not retried");
+        });
+        return promise.future();
+    }
+}
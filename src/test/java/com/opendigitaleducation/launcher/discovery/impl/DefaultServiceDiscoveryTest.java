@@ -0,0 +1,94 @@
+package com.opendigitaleducation.launcher.discovery.impl;
+
+import com.opendigitaleducation.launcher.discovery.ServiceInfo;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class DefaultServiceDiscoveryTest {
+    private static final String SERVICE = "org.entcore.auth";
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private static ServiceInfo instance(String nodeId) {
+        return new ServiceInfo("org.entcore~auth~1.0", "vertx.auth", "127.0.0.1", 8090, "/auth", nodeId, true, false, null);
+    }
+
+    /**
+     * @return the map of services where another node registers an instance right after the first read
+     */
+    @SuppressWarnings("unchecked")
+    private static AsyncMap<String, List<ServiceInfo>> concurrentRegistration(AsyncMap<String, List<ServiceInfo>> services) {
+        final AtomicBoolean registered = new AtomicBoolean();
+        return (AsyncMap<String, List<ServiceInfo>>) Proxy.newProxyInstance(AsyncMap.class.getClassLoader(),
+            new Class<?>[]{AsyncMap.class}, (proxy, method, args) -> {
+                final Object result = method.invoke(services, args);
+                if ("get".equals(method.getName()) && registered.compareAndSet(false, true)) {
+                    return ((Future<List<ServiceInfo>>) result).compose(infos -> {
+                        final List<ServiceInfo> newList = new ArrayList<>(infos);
+                        newList.add(instance("node-3"));
+                        return services.put(SERVICE, newList).map(infos);
+                    });
+                }
+                return result;
+            });
+    }
+
+    @Test
+    public void testRemoveServiceId_shouldRetryWhenListIsModifiedConcurrently(TestContext context) {
+        // Given
+        final Async async = context.async();
+        vertx.sharedData().<String, List<ServiceInfo>>getLocalAsyncMap("services").compose(services ->
+            services.put(SERVICE, new ArrayList<>(Arrays.asList(instance("node-1"), instance("node-2"))))
+                // When
+                .compose(v -> DefaultServiceDiscovery.removeServiceId(concurrentRegistration(services), SERVICE, "node-1", 0))
+                .compose(v -> services.get(SERVICE)))
+            .onComplete(context.asyncAssertSuccess(infos -> {
+                // Then
+                assertEquals(Arrays.asList(instance("node-2"), instance("node-3")), infos);
+                async.complete();
+            }));
+    }
+
+    @Test
+    public void testRemoveServiceId_shouldRemoveServiceWithoutInstance(TestContext context) {
+        // Given
+        final Async async = context.async();
+        vertx.sharedData().<String, List<ServiceInfo>>getLocalAsyncMap("services").compose(services ->
+            services.put(SERVICE, new ArrayList<>(Arrays.asList(instance("node-1"))))
+                // When
+                .compose(v -> DefaultServiceDiscovery.removeServiceId(services, SERVICE, "node-1", 0))
+                .compose(v -> services.get(SERVICE)))
+            .onComplete(context.asyncAssertSuccess(infos -> {
+                // Then
+                assertNull(infos);
+                async.complete();
+            }));
+    }
+}
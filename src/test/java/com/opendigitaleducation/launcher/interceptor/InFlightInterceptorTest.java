@@ -0,0 +1,138 @@
+package com.opendigitaleducation.launcher.interceptor;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class InFlightInterceptorTest {
+    private static final String MODULE = "org.entcore~auth~1.0";
+    private static final String ADDRESS = "test.auth";
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        vertx.eventBus().addInboundInterceptor(new InFlightInterceptor<>(true));
+        vertx.eventBus().addOutboundInterceptor(new InFlightInterceptor<>(false));
+        InFlightInterceptor.track(MODULE, ADDRESS);
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        InFlightInterceptor.untrack(MODULE);
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testAwaitIdle_shouldWaitForPendingReplies(TestContext context) {
+        // Given
+        final List<Message<Object>> received = new CopyOnWriteArrayList<>();
+        vertx.eventBus().consumer(ADDRESS, received::add);
+        final Async async = context.async();
+        vertx.eventBus().request(ADDRESS, "ping");
+        vertx.eventBus().request(ADDRESS, "ping");
+        // fire and forget messages are not requests
+        vertx.eventBus().send(ADDRESS, "event");
+        vertx.setPeriodic(10, id -> {
+            if (received.size() < 3) {
+                return;
+            }
+            vertx.cancelTimer(id);
+            assertEquals(2, InFlightInterceptor.getInFlight(MODULE));
+
+            // When
+            InFlightInterceptor.awaitIdle(vertx, MODULE, 5000L).onComplete(context.asyncAssertSuccess(pending -> {
+                // Then
+                assertEquals(0, pending.intValue());
+                assertEquals(0, InFlightInterceptor.getInFlight(MODULE));
+                async.complete();
+            }));
+            vertx.setTimer(100, t -> received.forEach(m -> {
+                if (m.replyAddress() != null) {
+                    m.reply("pong");
+                }
+            }));
+        });
+    }
+
+    @Test
+    public void testAwaitIdle_shouldIgnoreRequestsNeverRepliedAfterTimeout(TestContext context) {
+        // Given
+        vertx.eventBus().consumer(ADDRESS, m -> {
+            // never replied
+        });
+        final Async async = context.async();
+        vertx.eventBus().request(ADDRESS, "ping");
+
+        // When
+        vertx.setTimer(50, id -> {
+            assertEquals(1, InFlightInterceptor.getInFlight(MODULE));
+            final long start = System.currentTimeMillis();
+            InFlightInterceptor.awaitIdle(vertx, MODULE, 100L).onComplete(context.asyncAssertSuccess(pending -> {
+                // Then
+                assertTrue(System.currentTimeMillis() - start >= 50);
+                assertEquals(0, pending.intValue());
+                assertEquals(0, InFlightInterceptor.getInFlight(MODULE));
+                async.complete();
+            }));
+        });
+    }
+
+    @Test
+    public void testUntrack_shouldForgetPendingRequests(TestContext context) {
+        // Given
+        vertx.eventBus().consumer(ADDRESS, m -> {
+        });
+        final Async async = context.async();
+        vertx.eventBus().request(ADDRESS, "ping");
+
+        // When
+        vertx.setTimer(50, id -> {
+            assertEquals(1, InFlightInterceptor.getInFlight(MODULE));
+            InFlightInterceptor.untrack(MODULE);
+
+            // Then
+            assertEquals(0, InFlightInterceptor.getInFlight(MODULE));
+            async.complete();
+        });
+    }
+
+    @Test
+    public void testDrain_shouldFailNewRequestsAndWaitOnlyForTrackedOnes(TestContext context) {
+        // Given
+        final List<Message<Object>> received = new CopyOnWriteArrayList<>();
+        vertx.eventBus().consumer(ADDRESS, received::add);
+        final Async async = context.async();
+        vertx.eventBus().request(ADDRESS, "ping");
+        vertx.setTimer(50, id -> {
+            // When
+            InFlightInterceptor.drain(MODULE);
+            final long start = System.currentTimeMillis();
+            InFlightInterceptor.awaitIdle(vertx, MODULE, 5000L).onComplete(context.asyncAssertSuccess(pending -> {
+                // Then
+                assertEquals(0, pending.intValue());
+                assertTrue(System.currentTimeMillis() - start < 5000L);
+                assertEquals(1, received.size());
+                async.complete();
+            }));
+            vertx.eventBus().request(ADDRESS, "late").onComplete(context.asyncAssertFailure(e -> {
+                assertEquals(InFlightInterceptor.DRAINING_FAILURE_CODE, ((ReplyException) e).failureCode());
+                received.get(0).reply("pong");
+            }));
+        });
+    }
+}
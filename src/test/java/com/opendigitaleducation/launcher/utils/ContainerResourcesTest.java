@@ -0,0 +1,72 @@
+package com.opendigitaleducation.launcher.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class ContainerResourcesTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static void write(File file, String content) throws IOException {
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRead_cgroupV2Limits() throws IOException {
+        // Given
+        final File root = tempFolder.newFolder("v2");
+        write(new File(root, "cpu.max"), "150000 100000\n");
+        write(new File(root, "memory.max"), "536870912\n");
+
+        // When
+        final ContainerResources resources = ContainerResources.read(root.toPath());
+
+        // Then
+        assertEquals(1.5, resources.getCpuLimit(), 0.001);
+        assertEquals(536870912L, resources.getMemoryLimit());
+        assertTrue(resources.getEffectiveCpus() <= 2);
+    }
+
+    @Test
+    public void testRead_cgroupV2Unlimited() throws IOException {
+        // Given
+        final File root = tempFolder.newFolder("v2max");
+        write(new File(root, "cpu.max"), "max 100000\n");
+        write(new File(root, "memory.max"), "max\n");
+
+        // When
+        final ContainerResources resources = ContainerResources.read(root.toPath());
+
+        // Then
+        assertEquals(-1, resources.getCpuLimit(), 0.001);
+        assertEquals(-1L, resources.getMemoryLimit());
+        assertEquals(Runtime.getRuntime().availableProcessors(), resources.getEffectiveCpus());
+    }
+
+    @Test
+    public void testRead_cgroupV1Limits() throws IOException {
+        // Given
+        final File root = tempFolder.newFolder("v1");
+        write(new File(root, "cpu/cpu.cfs_quota_us"), "200000\n");
+        write(new File(root, "cpu/cpu.cfs_period_us"), "100000\n");
+        write(new File(root, "memory/memory.limit_in_bytes"), "9223372036854771712\n");
+
+        // When
+        final ContainerResources resources = ContainerResources.read(root.toPath());
+
+        // Then
+        assertEquals(2, resources.getCpuLimit(), 0.001);
+        assertEquals(-1L, resources.getMemoryLimit());
+        assertEquals("cgroup v1", resources.getSource());
+    }
+}
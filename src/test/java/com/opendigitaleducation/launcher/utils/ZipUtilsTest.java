@@ -0,0 +1,67 @@
+package com.opendigitaleducation.launcher.utils;
+
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.*;
+
+@RunWith(VertxUnitRunner.class)
+public class ZipUtilsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void testUnzipResources_shouldKeepClassesInJar(TestContext context) throws Exception {
+        // Given
+        final File jar = folder.newFile("org.entcore~auth~1.0.jar");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (final String entry : Arrays.asList("org/entcore/Auth.class", "public/index.html", "lib/nested.jar")) {
+                out.putNextEntry(new JarEntry(entry));
+                out.write(entry.getBytes());
+                out.closeEntry();
+            }
+        }
+        final String servicePath = new File(folder.getRoot(), "org.entcore~auth~1.0").getAbsolutePath();
+        final Promise<Void> extracted = Promise.promise();
+        final Async async = context.async();
+
+        // When
+        ZipUtils.unzipResources(vertx, jar.getAbsolutePath(), servicePath, extracted);
+        extracted.future().compose(v -> ZipUtils.classPath(vertx, servicePath)).onComplete(context.asyncAssertSuccess(classPath -> {
+            // Then
+            assertFalse(new File(servicePath, "org/entcore/Auth.class").exists());
+            assertTrue(new File(servicePath, "public/index.html").exists());
+            assertEquals(Arrays.asList(jar.getAbsolutePath(), new File(servicePath, "lib/nested.jar").getAbsolutePath()),
+                    classPath);
+            async.complete();
+        }));
+    }
+}